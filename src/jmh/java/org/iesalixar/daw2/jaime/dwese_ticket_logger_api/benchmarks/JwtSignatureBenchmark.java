@@ -0,0 +1,91 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.benchmarks;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config.JwtKeySet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la firma y la verificación de un token como los que emite JwtUtil con cada tipo de
+ * clave admitido: RSA 2048 (RS256), EC P-256 (ES256) y Ed25519 (EdDSA). El algoritmo se elige
+ * con JwtKeySet.algorithmFor, igual que en la aplicación.
+ *
+ * Se ejecuta con: mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSignatureBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private KeyPair keyPair;
+    private SignatureAlgorithm signatureAlgorithm;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        keyPair = switch (algorithm) {
+            case "RS256" -> generate("RSA", new RSAKeyGenParameterSpec(2048, RSAKeyGenParameterSpec.F4));
+            case "ES256" -> generate("EC", new ECGenParameterSpec("secp256r1"));
+            case "EdDSA" -> KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+            default -> throw new IllegalArgumentException("Algoritmo no soportado: " + algorithm);
+        };
+        signatureAlgorithm = JwtKeySet.algorithmFor(keyPair.getPublic());
+        parser = Jwts.parser().verifyWith(keyPair.getPublic()).build();
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        return Jwts.builder()
+                .header().keyId("benchmark").and()
+                .id(UUID.randomUUID().toString())
+                .subject("admin")
+                .claim("roles", List.of("ROLE_USER", "ROLE_ADMIN"))
+                .claim("id", 1L)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(keyPair.getPrivate(), signatureAlgorithm)
+                .compact();
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    private static KeyPair generate(String type, AlgorithmParameterSpec spec) throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(type);
+        generator.initialize(spec);
+        return generator.generateKeyPair();
+    }
+}
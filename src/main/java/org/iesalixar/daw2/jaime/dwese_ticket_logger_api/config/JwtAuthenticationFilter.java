@@ -5,8 +5,11 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.CustomUserDetailsService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TokenRevocationService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.UserTokenStateService;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -17,6 +20,7 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import io.jsonwebtoken.Claims;
 
 import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 
 @Component
@@ -28,6 +32,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService; // Servicio personalizado para cargar detalles del usuario
 
+    @Autowired
+    private UserTokenStateService userTokenStateService; // Comprobación de revocación sin consultar la base de datos
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService; // Lista de tokens revocados (jti)
+
+    /**
+     * Si está activo, la autenticación se construye directamente a partir de los claims
+     * verificados del token (sub, id, roles) sin cargar el usuario de la base de datos.
+     * La revocación se sigue respetando comparando "iat" con el último cambio de contraseña.
+     */
+    @Value("${jwt.stateless.authentication:true}")
+    private boolean statelessAuthentication;
+
     /**
      * Método principal del filtro que intercepta cada solicitud HTTP entrante
      * y valida el token JWT si está presente en el encabezado de autorización.
@@ -51,43 +69,55 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // 3. Extraer el token JWT del encabezado (sin el prefijo "Bearer ")
         jwt = authHeader.substring(7); // Elimina los primeros 7 caracteres ("Bearer ")
 
-        // 4. Extraer el nombre de usuario (claim "sub") del token
-        username = jwtUtil.extractUsername(jwt);
+        // 4. Verificar el token una sola vez y extraer el nombre de usuario (claim "sub")
+        final Claims claims = jwtUtil.extractAllClaims(jwt);
+        username = claims.getSubject();
 
         // 5. Verificar si:
         // - El nombre de usuario extraído no es nulo
         // - No hay una autenticación existente en el contexto de seguridad
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-            // 6. Cargar los detalles del usuario desde el servicio personalizado
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-            // 7. Validar el token JWT con el nombre de usuario del usuario cargado
-            if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
-
-                // 8. Extraer los claims del token (como los roles)
-                Claims claims = jwtUtil.extractAllClaims(jwt);
-
-                // 9. Extraer los roles del claim "roles" y convertirlos en GrantedAuthority
-                List<String> roles = claims.get("roles", List.class); // Obtiene la lista de roles del token
-
-                List<SimpleGrantedAuthority> authorities = roles.stream()
-                        .map(SimpleGrantedAuthority::new) // Convierte cada rol en SimpleGrantedAuthority
-                        .toList();
+        // - El token no ha sido revocado
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationService.isRevoked(claims.getId())) {
+
+            // 6. Extraer los roles del claim "roles" y convertirlos en GrantedAuthority
+            List<String> roles = claims.get("roles", List.class); // Obtiene la lista de roles del token
+
+            List<SimpleGrantedAuthority> authorities = roles.stream()
+                    .map(SimpleGrantedAuthority::new) // Convierte cada rol en SimpleGrantedAuthority
+                    .toList();
+
+            // 7. Obtener el usuario autenticado: desde los claims o desde la base de datos
+            UserDetails userDetails = null;
+            if (statelessAuthentication) {
+                if (!userTokenStateService.isTokenRevoked(username, claims.getIssuedAt())
+                        && claims.getExpiration().after(new Date())) {
+                    userDetails = org.springframework.security.core.userdetails.User.withUsername(username)
+                            .password("")
+                            .authorities(authorities)
+                            .build();
+                }
+            } else {
+                UserDetails loadedUser = this.userDetailsService.loadUserByUsername(username);
+                if (jwtUtil.validateToken(jwt, loadedUser.getUsername())) {
+                    userDetails = loadedUser;
+                }
+            }
 
-                // 10. Crear un objeto UsernamePasswordAuthenticationToken con los detalles del usuario y sus roles
+            if (userDetails != null) {
+                // 8. Crear un objeto UsernamePasswordAuthenticationToken con los detalles del usuario y sus roles
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
 
-                // 11. Configurar los detalles adicionales de la solicitud actual (por ejemplo, dirección IP)
+                // 9. Configurar los detalles adicionales de la solicitud actual (por ejemplo, dirección IP)
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                // 12. Establecer la autenticación en el contexto de seguridad de Spring
+                // 10. Establecer la autenticación en el contexto de seguridad de Spring
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         }
 
-        // 13. Continuar con el siguiente filtro en la cadena de filtros
+        // 11. Continuar con el siguiente filtro en la cadena de filtros
         filterChain.doFilter(request, response);
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.interfaces.ECKey;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Conjunto de pares de claves usados para firmar y verificar los tokens JWT.
+ *
+ * Cada clave se identifica por su `kid` (el alias del keystore). La clave activa firma los
+ * tokens nuevos y todas las del conjunto sirven para verificar, lo que permite rotar
+ * claves sin invalidar los tokens ya emitidos.
+ */
+public class JwtKeySet {
+
+    private final Map<String, KeyPair> keyPairs;
+    private final String activeKeyId;
+
+    /**
+     * @param keyPairs pares de claves indexados por kid, en orden de configuración.
+     * @param activeKeyId kid de la clave con la que se firman los tokens nuevos.
+     */
+    public JwtKeySet(Map<String, KeyPair> keyPairs, String activeKeyId) {
+        if (!keyPairs.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("La clave activa " + activeKeyId + " no está en el keystore.");
+        }
+        // Falla al arrancar si alguna clave no tiene un algoritmo de firma asociado
+        keyPairs.values().forEach(keyPair -> algorithmFor(keyPair.getPublic()));
+        this.keyPairs = Collections.unmodifiableMap(new LinkedHashMap<>(keyPairs));
+        this.activeKeyId = activeKeyId;
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public KeyPair getActiveKeyPair() {
+        return keyPairs.get(activeKeyId);
+    }
+
+    /**
+     * Devuelve la clave pública asociada a un kid. Si el token no trae kid se usa la clave activa.
+     *
+     * @param keyId identificador de la clave, puede ser null.
+     * @return la clave pública, o null si el kid no es conocido.
+     */
+    public PublicKey getPublicKey(String keyId) {
+        KeyPair keyPair = keyId == null ? getActiveKeyPair() : keyPairs.get(keyId);
+        return keyPair == null ? null : keyPair.getPublic();
+    }
+
+    public Map<String, KeyPair> getKeyPairs() {
+        return keyPairs;
+    }
+
+    /**
+     * Determina el algoritmo de firma a partir del tipo de clave:
+     * RSA usa RS256, Ed25519 usa EdDSA y EC usa ES256, ES384 o ES512 según la curva
+     * (P-256, P-384 o P-521).
+     *
+     * @param publicKey clave pública del par.
+     * @return el algoritmo de firma correspondiente.
+     */
+    public static SignatureAlgorithm algorithmFor(PublicKey publicKey) {
+        return switch (publicKey.getAlgorithm()) {
+            case "RSA" -> Jwts.SIG.RS256;
+            case "EC" -> ecAlgorithmFor((ECKey) publicKey);
+            case "EdDSA", "Ed25519" -> Jwts.SIG.EdDSA;
+            default -> throw new IllegalArgumentException("Tipo de clave no soportado: " + publicKey.getAlgorithm());
+        };
+    }
+
+    private static SignatureAlgorithm ecAlgorithmFor(ECKey key) {
+        int fieldSize = key.getParams().getCurve().getField().getFieldSize();
+        return switch (fieldSize) {
+            case 256 -> Jwts.SIG.ES256;
+            case 384 -> Jwts.SIG.ES384;
+            case 521 -> Jwts.SIG.ES512;
+            default -> throw new IllegalStateException("Curva EC no soportada: " + fieldSize + " bits");
+        };
+    }
+}
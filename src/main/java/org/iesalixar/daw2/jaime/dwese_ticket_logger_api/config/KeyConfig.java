@@ -1,5 +1,7 @@
 package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,37 +10,64 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.io.FileInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Configuration
 public class KeyConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(KeyConfig.class);
+
     @Value("${jwt.keystore.path}") // Ruta del keystore
     private String keystorePath;
 
     @Value("${jwt.keystore.password}") // Contraseña del keystore
     private String keystorePassword;
 
-    @Value("${jwt.keystore.alias}") // Alias del par de claves
+    @Value("${jwt.keystore.type:JKS}") // Tipo del keystore (JKS o PKCS12)
+    private String keystoreType;
+
+    @Value("${jwt.keystore.alias}") // Alias del par de claves activo (firma los tokens nuevos)
     private String keystoreAlias;
 
+    // Alias adicionales que solo se usan para verificar (claves anteriores o siguientes en una rotación)
+    @Value("${jwt.keystore.verification-aliases:}")
+    private String[] verificationAliases;
+
     /**
-     * Crea un bean que carga el par de claves (privada y pública) desde el keystore.
+     * Crea un bean con los pares de claves (privada y pública) cargados desde el keystore.
+     * El alias de cada par se usa como `kid` en la cabecera de los tokens. Las claves
+     * pueden ser RSA (RS256), EC P-256 (ES256) o Ed25519 (EdDSA).
      *
-     * @return KeyPair con la clave privada y pública.
+     * @return JwtKeySet con la clave activa y las claves de verificación.
      * @throws Exception Si ocurre un error al cargar el keystore.
      */
     @Bean
-    public KeyPair jwtKeyPair() throws Exception {
+    public JwtKeySet jwtKeySet() throws Exception {
         // Cargar el keystore desde la ruta especificada
-        KeyStore keyStore = KeyStore.getInstance("JKS");
+        KeyStore keyStore = KeyStore.getInstance(keystoreType);
         try (FileInputStream fis = new FileInputStream(keystorePath)) {
             keyStore.load(fis, keystorePassword.toCharArray());
         }
 
+        Map<String, KeyPair> keyPairs = new LinkedHashMap<>();
+        keyPairs.put(keystoreAlias, loadKeyPair(keyStore, keystoreAlias));
+        for (String alias : verificationAliases) {
+            if (!alias.isBlank() && !keyPairs.containsKey(alias.trim())) {
+                keyPairs.put(alias.trim(), loadKeyPair(keyStore, alias.trim()));
+            }
+        }
+
+        logger.info("Claves JWT cargadas: {} (activa: {}, algoritmo: {})", keyPairs.keySet(), keystoreAlias,
+                JwtKeySet.algorithmFor(keyPairs.get(keystoreAlias).getPublic()).getId());
+        return new JwtKeySet(keyPairs, keystoreAlias);
+    }
+
+    private KeyPair loadKeyPair(KeyStore keyStore, String alias) throws Exception {
         // Obtener la clave privada y la clave pública asociada
-        PrivateKey privateKey = (PrivateKey) keyStore.getKey(keystoreAlias, keystorePassword.toCharArray());
-        PublicKey publicKey = keyStore.getCertificate(keystoreAlias).getPublicKey();
+        PrivateKey privateKey = (PrivateKey) keyStore.getKey(alias, keystorePassword.toCharArray());
+        PublicKey publicKey = keyStore.getCertificate(alias).getPublicKey();
 
         return new KeyPair(publicKey, privateKey);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configura el pool de hilos dedicado a la comprobación de contraseñas con BCrypt.
+ *
+ * BCrypt es deliberadamente lento, así que se ejecuta fuera de los hilos de Tomcat en un
+ * pool de tamaño fijo con una cola acotada. Cuando la cola está llena las peticiones se
+ * rechazan de inmediato en lugar de acumularse.
+ */
+@Configuration
+public class PasswordHashingConfig {
+
+    @Value("${auth.hashing.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int threads; // Número de hilos del pool
+
+    @Value("${auth.hashing.queue.capacity:64}")
+    private int queueCapacity; // Tamaño máximo de la cola de espera
+
+    /**
+     * Crea el pool de hilos para el hash de contraseñas.
+     *
+     * @return ThreadPoolExecutor de tamaño fijo que rechaza tareas cuando la cola está llena.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordHashingExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
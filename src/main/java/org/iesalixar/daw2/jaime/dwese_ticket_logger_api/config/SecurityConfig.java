@@ -71,7 +71,7 @@ public class SecurityConfig {
                                 "/api/supermarkets",
                                 "/api/locations",
                                 "/api/categories").hasRole("MANAGER")
-                        .requestMatchers("/api/v1/authenticate", "/api/v1/register").permitAll()
+                        .requestMatchers("/api/v1/authenticate", "/api/v1/register", "/api/v1/refresh").permitAll()
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(exception -> exception
@@ -1,7 +1,8 @@
 package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config;
 
 import io.jsonwebtoken.Claims;
-import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.CustomUserDetailsService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TokenRevocationService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.UserTokenStateService;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.JwtUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,16 +12,23 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 
+import java.security.Principal;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -28,11 +36,20 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
 
+    // Atributo de sesión donde se guarda la autenticación obtenida en el CONNECT
+    private static final String SESSION_AUTH_ATTRIBUTE = "jwtAuthentication";
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private UserTokenStateService userTokenStateService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private WebSocketSessionRegistry sessionRegistry;
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
@@ -45,40 +62,96 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setUserDestinationPrefix("/user"); //
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Registra cada sesión para poder cerrarla cuando caduque su token
+        registration.addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessionRegistry.register(session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessionRegistry.unregister(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        });
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
-                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
-                String token = accessor.getFirstNativeHeader("Authorization"); //
-
-                if (token != null && token.startsWith("Bearer ")) {
-                    token = token.substring(7);
-                    String username = jwtUtil.extractUsername(token);
-
-                    if (jwtUtil.validateToken(token, username)) {
-                        var userDetails = userDetailsService.loadUserByUsername(username);
-                        Claims claims = jwtUtil.extractAllClaims(token);
-                        List<String> roles = claims.get("roles", List.class);
-
-                        List<SimpleGrantedAuthority> authorities = roles.stream()
-                                .map(SimpleGrantedAuthority::new)
-                                .toList();
-
-                        UsernamePasswordAuthenticationToken authToken =
-                                new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null) {
+                    return message;
+                }
+                Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
 
-                        // Asocia la autenticación al contexto de Spring y al WebSocket
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
+                if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    // La autenticación solo se realiza una vez, al conectar
+                    UsernamePasswordAuthenticationToken authToken = authenticate(accessor);
+                    if (authToken != null) {
                         accessor.setUser(authToken);
-                        logger.info("✅ Usuario autenticado en WebSocket: " + username);
-                    } else {
-                        logger.warn("❌ Token inválido para el usuario: " + username);
+                        if (sessionAttributes != null) {
+                            sessionAttributes.put(SESSION_AUTH_ATTRIBUTE, authToken);
+                        }
+                    }
+                } else if (accessor.getUser() == null && sessionAttributes != null) {
+                    // SUBSCRIBE, SEND, etc. reutilizan el usuario autenticado en el CONNECT
+                    Object principal = sessionAttributes.get(SESSION_AUTH_ATTRIBUTE);
+                    if (principal instanceof Principal user) {
+                        accessor.setUser(user);
                     }
                 }
                 return message;
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Valida el token enviado en el CONNECT y construye la autenticación a partir de sus claims.
+     * La expiración del token se registra para que la sesión se cierre cuando caduque.
+     *
+     * @param accessor cabeceras del frame CONNECT.
+     * @return la autenticación del usuario, o null si no hay token o no es válido.
+     */
+    private UsernamePasswordAuthenticationToken authenticate(StompHeaderAccessor accessor) {
+        String token = accessor.getFirstNativeHeader("Authorization"); //
+        if (token == null || !token.startsWith("Bearer ")) {
+            return null;
+        }
+        token = token.substring(7);
+
+        try {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            String username = claims.getSubject();
+
+            if (username == null || tokenRevocationService.isRevoked(claims.getId())
+                    || userTokenStateService.isTokenRevoked(username, claims.getIssuedAt())) {
+                logger.warn("❌ Token inválido para el usuario: " + username);
+                return null;
+            }
+
+            List<String> roles = claims.get("roles", List.class);
+            List<SimpleGrantedAuthority> authorities = roles.stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .toList();
+
+            var userDetails = org.springframework.security.core.userdetails.User.withUsername(username)
+                    .password("")
+                    .authorities(authorities)
+                    .build();
+
+            sessionRegistry.setExpiration(accessor.getSessionId(), claims.getExpiration().getTime());
+            logger.info("✅ Usuario autenticado en WebSocket: " + username);
+            return new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+        } catch (Exception e) {
+            logger.warn("❌ Token inválido en el CONNECT de WebSocket: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de las sesiones WebSocket abiertas y de la fecha de expiración del token
+ * con el que se autenticó cada una en el CONNECT de STOMP.
+ *
+ * En lugar de volver a parsear el token en cada frame, una tarea programada revisa
+ * periódicamente las sesiones y cierra las que tienen el token caducado.
+ */
+@Component
+public class WebSocketSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    // Sesiones WebSocket abiertas, indexadas por su identificador (el mismo que simpSessionId)
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    // Instante (ms) en el que caduca el token de cada sesión autenticada
+    private final Map<String, Long> expirations = new ConcurrentHashMap<>();
+
+    public void register(WebSocketSession session) {
+        sessions.put(session.getId(), session);
+    }
+
+    public void unregister(String sessionId) {
+        sessions.remove(sessionId);
+        expirations.remove(sessionId);
+    }
+
+    /**
+     * Asocia a la sesión la fecha de expiración del token presentado en el CONNECT.
+     *
+     * @param sessionId identificador de la sesión.
+     * @param expiresAt instante (ms) en que caduca el token.
+     */
+    public void setExpiration(String sessionId, long expiresAt) {
+        expirations.put(sessionId, expiresAt);
+    }
+
+    /**
+     * Cierra las sesiones cuyo token ha caducado.
+     */
+    @Scheduled(fixedDelayString = "${websocket.session.expiry-check.ms:30000}")
+    public void closeExpiredSessions() {
+        long now = System.currentTimeMillis();
+        expirations.forEach((sessionId, expiresAt) -> {
+            if (expiresAt <= now) {
+                WebSocketSession session = sessions.get(sessionId);
+                unregister(sessionId);
+                if (session != null && session.isOpen()) {
+                    try {
+                        session.close(CloseStatus.POLICY_VIOLATION.withReason("Token expirado"));
+                        logger.info("Sesión WebSocket {} cerrada por expiración del token", sessionId);
+                    } catch (IOException e) {
+                        logger.warn("Error al cerrar la sesión WebSocket {}: {}", sessionId, e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+}
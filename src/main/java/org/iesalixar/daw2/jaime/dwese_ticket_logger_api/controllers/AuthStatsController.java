@@ -0,0 +1,88 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.CustomUserDetailsService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.LoginAdmissionService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.JwtUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controlador REST con el estado de los componentes de autenticación, solo para administradores.
+ */
+@RestController
+@RequestMapping("/api/v1/auth/stats")
+@PreAuthorize("hasAnyRole('ADMIN')")
+public class AuthStatsController {
+
+    @Autowired
+    private LoginAdmissionService loginAdmissionService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Operation(summary = "Estado del control de admisión del login", description = "Devuelve la latencia de la " +
+            "comprobación de contraseñas, la ocupación de su cola y los intentos rechazados.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estado recuperado exitosamente")
+    })
+    @GetMapping("/login")
+    public ResponseEntity<Map<String, Object>> getLoginStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hashCount", loginAdmissionService.getHashCount());
+        stats.put("hashAverageMillis", loginAdmissionService.getHashAverageMillis());
+        stats.put("hashMaxMillis", loginAdmissionService.getHashMaxMillis());
+        stats.put("queueDepth", loginAdmissionService.getQueueDepth());
+        stats.put("queueRemainingCapacity", loginAdmissionService.getQueueRemainingCapacity());
+        stats.put("activeHashes", loginAdmissionService.getActiveHashes());
+        stats.put("rejectedByRate", loginAdmissionService.getRejectedByRate());
+        stats.put("rejectedByQueue", loginAdmissionService.getRejectedByQueue());
+        stats.put("failedAttempts", loginAdmissionService.getFailedAttempts());
+        return ResponseEntity.ok(stats);
+    }
+
+    @Operation(summary = "Estado de la caché de tokens verificados", description = "Devuelve los aciertos y " +
+            "fallos de la caché de claims de JwtUtil y el número de tokens que contiene.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estado recuperado exitosamente")
+    })
+    @GetMapping("/tokens")
+    public ResponseEntity<Map<String, Object>> getTokenCacheStats() {
+        long hits = jwtUtil.getCacheHits();
+        long misses = jwtUtil.getCacheMisses();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        stats.put("size", jwtUtil.getCacheSize());
+        return ResponseEntity.ok(stats);
+    }
+
+    @Operation(summary = "Estado de la caché de usuarios", description = "Devuelve los aciertos, fallos y " +
+            "descartes de la caché de datos de autenticación de los usuarios y el número de usuarios que contiene.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estado recuperado exitosamente")
+    })
+    @GetMapping("/users")
+    public ResponseEntity<Map<String, Object>> getUserCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", customUserDetailsService.getCacheHits());
+        stats.put("misses", customUserDetailsService.getCacheMisses());
+        stats.put("hitRatio", customUserDetailsService.getCacheHitRatio());
+        stats.put("evictions", customUserDetailsService.getCacheEvictions());
+        stats.put("size", customUserDetailsService.getCacheSize());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -1,9 +1,16 @@
 package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
 
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.AuthRequestDTO;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.AuthResponseDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.RefreshRequestDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Role;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.UserRepository;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.LoginAdmissionService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.RefreshTokenService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TokenRevocationService;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.UserService;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +23,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -29,14 +37,28 @@ public class AuthenticationController {
 
     @Autowired
     private UserService userService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService; // Emisión y rotación de tokens de refresco
+
+    @Autowired
+    private LoginAdmissionService loginAdmissionService; // Límite de intentos y pool de BCrypt
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService; // Revocación de tokens antes de su expiración
     /**
      * Genera un token JWT que incluye información del usuario y sus roles.
      *
+     * La comprobación de la contraseña se ejecuta en un pool dedicado. Si se supera el límite
+     * de intentos por usuario o IP, o la cola del pool está llena, se responde con 429.
+     *
      * @param authRequest Un objeto {@link AuthRequestDTO} que contiene el nombre de usuario y la contraseña.
+     * @param request La petición HTTP, usada para obtener la IP del cliente.
      * @return Una respuesta HTTP con un token JWT en caso de éxito o un error en caso de fallo.
      */
     @PostMapping("/authenticate")
-    public ResponseEntity<AuthResponseDTO> authenticate(@Valid @RequestBody AuthRequestDTO authRequest) {
+    public ResponseEntity<AuthResponseDTO> authenticate(@Valid @RequestBody AuthRequestDTO authRequest,
+                                                        HttpServletRequest request) {
         try {
             // Validar datos de entrada (opcional si no usas validación adicional en DTO)
             if (authRequest.getUsername() == null || authRequest.getPassword() == null) {
@@ -44,9 +66,17 @@ public class AuthenticationController {
                         .body(new AuthResponseDTO(null, "El nombre de usuario y la contraseña son obligatorios."));
             }
 
-            // Intenta autenticar al usuario con las credenciales proporcionadas
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(authRequest.getUsername(), authRequest.getPassword())
+            // Rechaza el intento si se ha superado el límite por usuario o por IP
+            if (!loginAdmissionService.tryAcquire(authRequest.getUsername(), request.getRemoteAddr())) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(new AuthResponseDTO(null, "Demasiados intentos. Inténtalo de nuevo más tarde."));
+            }
+
+            // Intenta autenticar al usuario con las credenciales proporcionadas en el pool de BCrypt
+            Authentication authentication = loginAdmissionService.authenticate(() ->
+                    authenticationManager.authenticate(
+                            new UsernamePasswordAuthenticationToken(authRequest.getUsername(), authRequest.getPassword())
+                    )
             );
 
             // Obtiene el nombre de usuario autenticado
@@ -58,16 +88,26 @@ public class AuthenticationController {
                     .toList();
 
             // Genera un token JWT para el usuario autenticado, incluyendo sus roles
-            String token = jwtUtil.generateToken(username, roles, userService.getIdByUsername(username));
+            Long userId = userService.getIdByUsername(username);
+            String token = jwtUtil.generateToken(username, roles, userId);
+
+            // Emite un token de refresco para renovar el token de acceso sin repetir el login
+            String refreshToken = refreshTokenService.issue(userId);
 
             // Retorna una respuesta con el token JWT y un mensaje de éxito
-            return ResponseEntity.ok(new AuthResponseDTO(token, "Authentication successful"));
+            return ResponseEntity.ok(new AuthResponseDTO(token, refreshToken, "Authentication successful"));
 
         } catch (BadCredentialsException e) {
-            // Manejo de credenciales inválidas
+            // Manejo de credenciales inválidas: el fallo cuenta para el límite del usuario en todas las IPs
+            loginAdmissionService.recordFailure(authRequest.getUsername());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new AuthResponseDTO(null, "Credenciales inválidas. Por favor, verifica tus datos."));
 
+        } catch (RejectedExecutionException e) {
+            // El pool de comprobación de contraseñas está saturado
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(new AuthResponseDTO(null, "Servicio de autenticación saturado. Inténtalo de nuevo más tarde."));
+
         } catch (Exception e) {
             // Manejo de cualquier otro error
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -75,6 +115,62 @@ public class AuthenticationController {
         }
     }
 
+    /**
+     * Renueva el token de acceso a partir de un token de refresco, sin volver a comprobar
+     * la contraseña. El token de refresco se rota: el recibido deja de ser válido y se
+     * devuelve uno nuevo.
+     *
+     * @param refreshRequest Un objeto {@link RefreshRequestDTO} con el token de refresco.
+     * @return Una respuesta HTTP con el nuevo token JWT y el nuevo token de refresco.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponseDTO> refresh(@Valid @RequestBody RefreshRequestDTO refreshRequest) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+
+            List<String> roles = rotation.user().getRoles().stream()
+                    .map(Role::getName)
+                    .toList();
+
+            String token = jwtUtil.generateToken(rotation.user().getUsername(), roles, rotation.user().getId());
+
+            return ResponseEntity.ok(new AuthResponseDTO(token, rotation.refreshToken(), "Token refreshed"));
+
+        } catch (IllegalArgumentException e) {
+            // Token inexistente, caducado o reutilizado
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new AuthResponseDTO(null, e.getMessage()));
+        }
+    }
+
+    /**
+     * Cierra la sesión revocando el token de acceso actual hasta su expiración y los tokens
+     * de refresco de la sesión. Si el cuerpo incluye el token de refresco se revoca solo su
+     * familia; si no, se revocan todos los tokens de refresco del usuario.
+     *
+     * @param tokenHeader Cabecera Authorization con el token JWT.
+     * @param refreshRequest Token de refresco de la sesión (opcional).
+     * @return Una respuesta HTTP vacía si el token se ha revocado.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<AuthResponseDTO> logout(@RequestHeader("Authorization") String tokenHeader,
+                                                  @RequestBody(required = false) RefreshRequestDTO refreshRequest) {
+        String token = tokenHeader.replace("Bearer ", "");
+        Claims claims = jwtUtil.extractAllClaims(token);
+        if (claims.getId() == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AuthResponseDTO(null, "El token no se puede revocar."));
+        }
+        tokenRevocationService.revoke(claims.getId(), claims.getExpiration());
+        if (refreshRequest != null && refreshRequest.getRefreshToken() != null
+                && !refreshRequest.getRefreshToken().isBlank()) {
+            refreshTokenService.revokeFamily(refreshRequest.getRefreshToken());
+        } else {
+            refreshTokenService.revokeAll(claims.get("id", Long.class));
+        }
+        return ResponseEntity.ok(new AuthResponseDTO(null, "Logout successful"));
+    }
+
     /**
      * Maneja excepciones no controladas que puedan ocurrir en el controlador.
      *
@@ -0,0 +1,112 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.GeoImportReportDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.GeoSearchResultDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.GeoImportService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.GeoSearchIndex;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.GeoTreeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * Controlador REST para los datos geográficos de referencia (regiones, provincias,
+ * ubicaciones y supermercados).
+ */
+@RestController
+@RequestMapping("/api/geo")
+public class GeoController {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoController.class);
+
+    // Número máximo de resultados de la búsqueda
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    @Autowired
+    private GeoImportService geoImportService;
+
+    @Autowired
+    private GeoSearchIndex geoSearchIndex;
+
+    @Autowired
+    private GeoTreeService geoTreeService;
+
+    @Operation(summary = "Obtener la jerarquía geográfica", description = "Devuelve las regiones con sus provincias, " +
+            "y estas con sus ubicaciones y supermercados. Admite peticiones condicionales con If-None-Match.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Jerarquía recuperada exitosamente"),
+            @ApiResponse(responseCode = "304", description = "La jerarquía no ha cambiado")
+    })
+    @GetMapping("/tree")
+    public ResponseEntity<StreamingResponseBody> getTree(WebRequest webRequest) {
+        GeoTreeService.Tree tree = geoTreeService.getTree();
+        if (webRequest.checkNotModified(tree.etag())) {
+            return null;
+        }
+        logger.debug("Enviando la jerarquía geográfica {}", tree.etag());
+        StreamingResponseBody body = outputStream -> geoTreeService.write(tree, outputStream);
+        return ResponseEntity.ok()
+                .eTag(tree.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @Operation(summary = "Buscar regiones y provincias", description = "Busca por nombre sin distinguir mayúsculas " +
+            "ni acentos y tolerando errores de escritura. Devuelve los resultados ordenados por relevancia.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resultados recuperados exitosamente",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = GeoSearchResultDTO.class))))
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<GeoSearchResultDTO>> search(@RequestParam("q") String query,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+        logger.debug("Búsqueda geográfica de '{}'", query);
+        return ResponseEntity.ok(geoSearchIndex.search(query, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
+    @Operation(summary = "Importar regiones o provincias desde CSV", description = "Inserta o actualiza por código " +
+            "las filas de un CSV (code,name) enviado en el cuerpo de la petición y devuelve un resumen.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importación completada",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = GeoImportReportDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Tabla no soportada"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @PostMapping(value = "/import/{entity}", consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<?> importCsv(@PathVariable String entity, HttpServletRequest request) {
+        GeoImportService.Target target;
+        try {
+            target = GeoImportService.Target.valueOf(entity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Tabla no soportada: " + entity);
+        }
+        logger.info("Importando {} desde CSV", target);
+        try {
+            return ResponseEntity.ok(geoImportService.importCsv(target, request.getInputStream()));
+        } catch (Exception e) {
+            logger.error("Error al importar {}: {}", target, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al importar el CSV.");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
+
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config.JwtKeySet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controlador que publica las claves públicas de verificación de los tokens JWT
+ * en formato JWKS, para que otros servicios puedan validar los tokens localmente.
+ */
+@RestController
+public class JwksController {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksController.class);
+
+    @Autowired
+    private JwtKeySet jwtKeySet;
+
+    /**
+     * Devuelve el conjunto de claves públicas (activa y de verificación) con su kid.
+     *
+     * @return documento JWKS con la lista de claves.
+     */
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, List<PublicJwk<?>>>> getJwks() {
+        logger.info("Publicando {} claves en el JWKS", jwtKeySet.getKeyPairs().size());
+        List<PublicJwk<?>> keys = jwtKeySet.getKeyPairs().entrySet().stream()
+                .<PublicJwk<?>>map(entry -> Jwks.builder()
+                        .key(entry.getValue().getPublic())
+                        .keyId(entry.getKey())
+                        .algorithm(JwtKeySet.algorithmFor(entry.getValue().getPublic()).getId())
+                        .publicKeyUse("sig")
+                        .build())
+                .toList();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                .body(Map.of("keys", keys));
+    }
+}
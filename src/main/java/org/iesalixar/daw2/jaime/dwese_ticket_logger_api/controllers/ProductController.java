@@ -0,0 +1,90 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.ProductDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.ProductCatalogService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.ProductSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controlador REST para consultar los productos.
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
+
+    // Número máximo de sugerencias por consulta
+    private static final int MAX_SUGGESTIONS = 50;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Operation(summary = "Obtener el catálogo de productos", description = "Devuelve el id, nombre y precio de " +
+            "todos los productos. Admite peticiones condicionales con If-None-Match.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Catálogo recuperado exitosamente",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = ProductDTO.class)))),
+            @ApiResponse(responseCode = "304", description = "El catálogo no ha cambiado desde la versión indicada")
+    })
+    @GetMapping("/catalog")
+    public ResponseEntity<List<ProductDTO>> getCatalog(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ProductCatalogService.Snapshot snapshot = productCatalogService.getSnapshot();
+        if (snapshot.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).body(snapshot.products());
+    }
+
+    @Operation(summary = "Sugerir productos", description = "Devuelve los productos cuyo nombre se parece al " +
+            "texto indicado, sin distinguir mayúsculas ni acentos, ordenados por relevancia.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sugerencias recuperadas exitosamente",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = ProductDTO.class))))
+    })
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductDTO>> suggest(@RequestParam("q") String query,
+                                                    @RequestParam(defaultValue = "10") int limit) {
+        logger.debug("Sugerencias de productos para '{}'", query);
+        return ResponseEntity.ok(productSearchIndex.suggest(query, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    @Operation(summary = "Estado del índice de sugerencias", description = "Devuelve el número de productos y " +
+            "trigramas indexados y la duración de la última construcción del índice.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estado recuperado exitosamente")
+    })
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @GetMapping("/suggest/stats")
+    public ResponseEntity<Map<String, Object>> getSuggestStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("built", productSearchIndex.isBuilt());
+        stats.put("products", productSearchIndex.getSize());
+        stats.put("trigrams", productSearchIndex.getTrigramCount());
+        stats.put("lastRebuildMillis", productSearchIndex.getLastRebuildMillis());
+        return ResponseEntity.ok(stats);
+    }
+}
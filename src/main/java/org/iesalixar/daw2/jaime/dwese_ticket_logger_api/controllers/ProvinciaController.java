@@ -4,14 +4,12 @@ import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Provincia;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.ProvinciaRepository;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Provincia;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.RegionRepository;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.ProvinciaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -32,22 +30,17 @@ public class ProvinciaController {
     private MessageSource messageSource;
     @Autowired
     private ProvinciaRepository provinciaRepository;
+    @Autowired
+    private ProvinciaService provinciaService;
 
     /** Lista todas las provincias */
     @GetMapping()
     public String listProvincias(@RequestParam(defaultValue = "1") int page, @RequestParam(required = false) String search, @RequestParam(required = false) String sort, Model model) {
         logger.info("Solicitando la lista de todas las provincias..." + search);
-        Pageable pageable = PageRequest.of(page - 1, 5, getSort(sort));
-        Page<Provincia> provincias;
-        int totalPages = 0;
-        if (search != null && !search.isBlank()) {
-            provincias = provinciaRepository.findByNameContainingIgnoreCase(search, pageable);
-            totalPages = (int) Math.ceil((double) provinciaRepository.countByNameContainingIgnoreCase(search) / 5);
-        } else {
-            provincias = provinciaRepository.findAll(pageable);
-            totalPages = (int) Math.ceil((double) provinciaRepository.count() / 5);
-        }
-        logger.info("Se han cargado {} provincias.", provincias.toList().size());
+        // Una sola consulta devuelve la página y el total de provincias
+        Page<Provincia> provincias = provinciaService.getProvincias(search, page - 1, 5, sort);
+        int totalPages = provincias.getTotalPages();
+        logger.info("Se han cargado {} provincias.", provincias.getNumberOfElements());
         model.addAttribute("listProvincias", provincias.toList()); // Pasar la lista de provincias al modelo
         model.addAttribute("totalPages", totalPages);
         model.addAttribute("currentPage", page);
@@ -157,18 +150,4 @@ public class ProvinciaController {
         }
         return "redirect:/provincias";
     }
-    private Sort getSort(String sort) {
-        if (sort == null) {
-            return Sort.by("id").ascending();
-        }
-        return switch (sort) {
-            case "nameAsc" -> Sort.by("name").ascending();
-            case "nameDesc" -> Sort.by("name").descending();
-            case "codeAsc" -> Sort.by("code").ascending();
-            case "codeDesc" -> Sort.by("code").descending();
-            case "idDesc" -> Sort.by("id").descending();
-            default -> Sort.by("id").ascending();
-        };
-    }
-
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.RegionRepos
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Region;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.FileStorageService;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.RegionService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TableVersionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,10 +22,12 @@ import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -57,25 +60,38 @@ public class RegionController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private TableVersionService tableVersionService;
+
     @Operation(summary = "Obtener todas las regiones", description = "Devuelve una lista de todas las regiones " +
             "disponibles en el sistema.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de regiones recuperada exitosamente",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = RegionDTO.class)))),
+            @ApiResponse(responseCode = "304", description = "Las regiones no han cambiado desde la versión indicada"),
             @ApiResponse(responseCode = "500", description = "Error interno del servidor")
     })
     @GetMapping
     public ResponseEntity<Page<RegionDTO>> getAllRegions(
-            @PageableDefault(size = 10, sort = "name") Pageable pageable
+            @PageableDefault(size = 10, sort = "name") Pageable pageable, WebRequest request
     ) {
         logger.info("Solicitando todas las regiones con paginación: página {}, tamaño {}",
                 pageable.getPageNumber(), pageable.getPageSize());
 
+        // Si el cliente ya tiene la versión actual se responde 304 sin consultar la base de datos
+        TableVersionService.Version version = tableVersionService.current(TableVersionService.REGIONS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         try {
             Page<RegionDTO> regions = regionService.getAllRegions(pageable);
             logger.info("Se han encontrado {} regiones.", regions.getTotalElements());
-            return ResponseEntity.ok(regions);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(version.etag())
+                    .lastModified(version.lastModified())
+                    .body(regions);
         } catch (Exception e) {
             logger.error("Error al listar las regiones: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -88,17 +104,26 @@ public class RegionController {
             @ApiResponse(responseCode = "200", description = "Región encontrada",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = RegionDTO.class))),
+            @ApiResponse(responseCode = "304", description = "La región no ha cambiado desde la versión indicada"),
             @ApiResponse(responseCode = "404", description = "Región no encontrada"),
             @ApiResponse(responseCode = "500", description = "Error interno del servidor")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<?> getRegionById(@PathVariable Long id) {
+    public ResponseEntity<?> getRegionById(@PathVariable Long id, WebRequest request) {
         logger.info("Buscando region con ID {}", id);
+        TableVersionService.Version version = tableVersionService.current(TableVersionService.REGIONS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         try{
             Optional<RegionDTO> regionDTO = regionService.getRegionById(id);
             if (regionDTO.isPresent()) {
                 logger.info("Rengion con ID {} encontrada", id);
-                return ResponseEntity.ok(regionDTO.get());
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(version.etag())
+                        .lastModified(version.lastModified())
+                        .body(regionDTO.get());
             } else {
                 logger.info("No se encontró ninguna región con ID {}", id);
                 return ResponseEntity
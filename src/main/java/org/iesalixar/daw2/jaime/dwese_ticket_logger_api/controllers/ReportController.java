@@ -0,0 +1,77 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.SpendingRollupDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.SpendingRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Controlador REST para los informes de gasto. Solo lee los agregados precalculados.
+ */
+@RestController
+@RequestMapping("/api/reports/spending")
+public class ReportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportController.class);
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    @Operation(summary = "Obtener el gasto por periodo", description = "Devuelve, para cada día, semana o mes " +
+            "del rango indicado, el número de tickets y los importes bruto, de descuento y neto.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Informe recuperado exitosamente",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = SpendingRollupDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Periodo no válido"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @GetMapping("/{granularity}")
+    public ResponseEntity<?> getSpending(
+            @PathVariable String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        SpendingRollupService.Granularity period;
+        try {
+            period = SpendingRollupService.Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Periodo no soportado: " + granularity);
+        }
+        logger.info("Solicitando el gasto por {} entre {} y {}", period, from, to);
+        try {
+            return ResponseEntity.ok(spendingRollupService.getRollups(period, from, to));
+        } catch (Exception e) {
+            logger.error("Error al obtener el informe de gasto: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al obtener el informe de gasto.");
+        }
+    }
+
+    @Operation(summary = "Reconstruir los agregados de gasto", description = "Vuelve a calcular todos los " +
+            "agregados a partir de los tickets.")
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> rebuild() {
+        logger.info("Reconstruyendo los agregados de gasto");
+        try {
+            return ResponseEntity.ok(Map.of("rows", spendingRollupService.rebuild()));
+        } catch (Exception e) {
+            logger.error("Error al reconstruir los agregados de gasto: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al reconstruir los agregados.");
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketBatchItemDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketBatchResultDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketPageDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketProductsResultDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketUpdateDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TicketBatchService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TicketExportService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TicketProductService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TicketService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TicketTotalsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Controlador REST para consultar los tickets.
+ */
+@RestController
+@RequestMapping("/api/tickets")
+public class TicketController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketController.class);
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private TicketTotalsService ticketTotalsService;
+
+    @Autowired
+    private TicketBatchService ticketBatchService;
+
+    @Autowired
+    private TicketExportService ticketExportService;
+
+    @Autowired
+    private TicketProductService ticketProductService;
+
+    @Operation(summary = "Listar tickets", description = "Devuelve los tickets ordenados por fecha descendente " +
+            "con paginación por cursor. Para obtener la página siguiente se envía el cursor recibido.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de tickets recuperada exitosamente",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TicketPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor no válido"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @GetMapping
+    public ResponseEntity<?> getTickets(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(required = false) BigDecimal minDiscount,
+            @RequestParam(required = false) BigDecimal maxDiscount,
+            @RequestParam(required = false) BigDecimal minTotal) {
+        logger.info("Solicitando tickets: cursor {}, tamaño {}", cursor, size);
+        try {
+            return ResponseEntity.ok(ticketService.getTickets(cursor, size, from, to, minDiscount, maxDiscount, minTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error al listar los tickets: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al listar los tickets.");
+        }
+    }
+
+    @Operation(summary = "Obtener un ticket por ID", description = "Recupera un ticket según su identificador único.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ticket encontrado",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TicketDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Ticket no encontrado"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getTicketById(@PathVariable Long id) {
+        logger.info("Buscando ticket con ID {}", id);
+        try {
+            Optional<TicketDTO> ticketDTO = ticketService.getTicketById(id);
+            if (ticketDTO.isPresent()) {
+                return ResponseEntity.ok(ticketDTO.get());
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("El ticket no existe.");
+        } catch (Exception e) {
+            logger.error("Error al buscar el ticket con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al buscar el ticket.");
+        }
+    }
+
+    @Operation(summary = "Modificar un ticket", description = "Modifica la fecha y/o el descuento de un ticket. " +
+            "Si se indica la versión leída y otro usuario ha modificado el ticket después, se devuelve 409.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ticket actualizado",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TicketDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Ticket no encontrado"),
+            @ApiResponse(responseCode = "409", description = "El ticket ha sido modificado por otro usuario"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> updateTicket(@PathVariable Long id, @RequestBody TicketUpdateDTO update) {
+        logger.info("Actualizando ticket con ID {} (versión {})", id, update.getVersion());
+        try {
+            Optional<TicketDTO> updated = ticketService.updateTicketFields(id, update.getVersion(),
+                    update.getDate(), update.getDiscount());
+            if (updated.isPresent()) {
+                return ResponseEntity.ok(updated.get());
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("El ticket no existe.");
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("El ticket ha sido modificado por otro usuario.");
+        } catch (Exception e) {
+            logger.error("Error al actualizar el ticket con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al actualizar el ticket.");
+        }
+    }
+
+    @Operation(summary = "Carga masiva de tickets", description = "Inserta un array de tickets con sus líneas " +
+            "de producto mediante lotes JDBC y devuelve el resultado de cada uno.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote procesado; el estado de cada ticket va en la respuesta"),
+            @ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<?> insertTicketsBatch(@RequestBody List<TicketBatchItemDTO> tickets) {
+        logger.info("Recibida carga masiva de {} tickets", tickets == null ? 0 : tickets.size());
+        try {
+            List<TicketBatchResultDTO> results = ticketBatchService.insertTickets(tickets);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error en la carga masiva de tickets: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error en la carga masiva de tickets.");
+        }
+    }
+
+    @Operation(summary = "Añadir productos a un ticket", description = "Añade varios productos existentes a un " +
+            "ticket. Los productos que ya estaban en el ticket o que no existen se indican en la respuesta.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Productos procesados",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TicketProductsResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Lista vacía o demasiado grande"),
+            @ApiResponse(responseCode = "404", description = "Ticket no encontrado"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PostMapping("/{id}/products")
+    public ResponseEntity<?> addProducts(@PathVariable Long id, @RequestBody List<Long> productIds) {
+        logger.info("Añadiendo {} productos al ticket con ID {}", productIds == null ? 0 : productIds.size(), id);
+        try {
+            TicketProductsResultDTO result = ticketProductService.addProducts(id, productIds);
+            if (result == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("El ticket no existe.");
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error al añadir productos al ticket con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al añadir los productos.");
+        }
+    }
+
+    @Operation(summary = "Quitar un producto de un ticket", description = "Elimina la asociación entre un " +
+            "ticket y un producto y actualiza los totales del ticket.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Producto quitado del ticket"),
+            @ApiResponse(responseCode = "404", description = "El ticket no existe o no contiene el producto"),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @DeleteMapping("/{id}/products/{productId}")
+    public ResponseEntity<?> removeProduct(@PathVariable Long id, @PathVariable Long productId) {
+        logger.info("Quitando el producto con ID {} del ticket con ID {}", productId, id);
+        try {
+            if (ticketProductService.removeProduct(id, productId) == TicketProductService.Outcome.DONE) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("El ticket no existe o no contiene el producto.");
+        } catch (Exception e) {
+            logger.error("Error al quitar el producto del ticket con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al quitar el producto.");
+        }
+    }
+
+    @Operation(summary = "Exportar tickets", description = "Descarga los tickets en CSV o NDJSON. La respuesta " +
+            "se genera por partes a medida que se leen las filas, con memoria constante.")
+    @GetMapping("/export")
+    public ResponseEntity<?> exportTickets(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        TicketExportService.Format exportFormat;
+        try {
+            exportFormat = TicketExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Formato no soportado: " + format);
+        }
+        logger.info("Exportando tickets en formato {}", exportFormat);
+
+        StreamingResponseBody body = outputStream -> ticketExportService.export(exportFormat, from, to, outputStream);
+        boolean csv = exportFormat == TicketExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=tickets." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
+
+    @Operation(summary = "Rellenar los totales de los tickets", description = "Recalcula en la base de datos " +
+            "el subtotal y el total persistidos de todos los tickets.")
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @PostMapping("/totals/backfill")
+    public ResponseEntity<?> backfillTotals() {
+        logger.info("Iniciando el relleno de los totales de los tickets");
+        try {
+            return ResponseEntity.ok(Map.of("updated", ticketTotalsService.backfill()));
+        } catch (Exception e) {
+            logger.error("Error al rellenar los totales de los tickets: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al rellenar los totales.");
+        }
+    }
+
+    @Operation(summary = "Comprobar los totales de los tickets", description = "Devuelve los tickets cuyo " +
+            "subtotal o total persistido no coincide con la suma de sus productos.")
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @GetMapping("/totals/check")
+    public ResponseEntity<?> checkTotals(@RequestParam(defaultValue = "100") int limit) {
+        logger.info("Comprobando la coherencia de los totales de los tickets");
+        try {
+            List<Map<String, Object>> inconsistent = ticketTotalsService.findInconsistentTotals(limit);
+            return ResponseEntity.ok(inconsistent);
+        } catch (Exception e) {
+            logger.error("Error al comprobar los totales de los tickets: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al comprobar los totales.");
+        }
+    }
+}
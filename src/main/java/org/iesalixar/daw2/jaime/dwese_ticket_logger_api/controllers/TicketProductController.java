@@ -3,11 +3,18 @@ package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.controllers;
 import jakarta.validation.Valid;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.*;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.*;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.ProductDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.ProductCatalogService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.ProductSearchIndex;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TicketProductService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TicketService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -16,7 +23,11 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/tickets")
@@ -36,6 +47,14 @@ public class TicketProductController {
     @Autowired
     private ProvinciaRepository provinciaRepository;
     @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductCatalogService productCatalogService;
+    @Autowired
+    private TicketProductService ticketProductService;
+    @Autowired
+    private TicketService ticketService;
+    @Autowired
     private MessageSource messageSource;
     /**
      * Lista todos los tickets disponibles y los muestra en la vista.
@@ -48,7 +67,7 @@ public class TicketProductController {
         logger.info("Solicitando la lista de todos los tickets...");
         List<Ticket> listTickets = null;
         try {
-            listTickets = ticketRepository.findAll();
+            listTickets = ticketRepository.findAllWithProducts();
             logger.info("Se han cargado {} tickets.", listTickets.size());
         } catch (Exception e) {
             logger.error("Error al listar los tickets: {}", e.getMessage());
@@ -66,7 +85,7 @@ public class TicketProductController {
     @GetMapping("/new")
     public String showNewForm(Model model) {
         logger.info("Mostrando formulario para nuevo ticket.");
-        List<Product> listProducts = productRepository.findAll();
+        List<ProductDTO> listProducts = productCatalogService.getProducts();
         //List<Location> listLocations = locationRepository.findAll();
         model.addAttribute("ticket", new Ticket());
         model.addAttribute("listProducts", listProducts);
@@ -91,12 +110,15 @@ public class TicketProductController {
         logger.info("Insertando nuevo ticket con fecha {}", ticket.getDate());
         try {
             if (result.hasErrors()) {
-                List<Product> listProducts = productRepository.findAll();
+                List<ProductDTO> listProducts = productCatalogService.getProducts();
                 model.addAttribute("listProducts", listProducts);
                 return "ticket-form.html";
             }
-            ticketRepository.save(ticket);
+            ticketService.createTicket(ticket);
             logger.info("Ticket insertado con éxito.");
+        } catch (DuplicateKeyException e) {
+            logger.warn("Ticket duplicado: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage", "El ticket ya existe: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Error al insertar el ticket: {}", e.getMessage());
             String errorMessage = messageSource.getMessage("msg.ticketcontroller.insert.error", null, locale);
@@ -115,12 +137,12 @@ public class TicketProductController {
     public String showEditForm(@RequestParam("id") Long id, Model model) {
         logger.info("Mostrando formulario de edición para el ticket con ID {}",
                 id);
-        Optional<Ticket> ticket = ticketRepository.findById(id);
+        Optional<Ticket> ticket = ticketRepository.findWithProductsById(id);
         if (ticket.isEmpty()) {
             logger.warn("No se encontró el ticket con ID {}", id);
             return "redirect:/tickets";
         }
-        List<Product> listProducts = productRepository.findAll();
+        List<ProductDTO> listProducts = productCatalogService.getProducts();
         //List<Location> listLocations = locationRepository.findAll();
         model.addAttribute("ticket", ticket.get());
         model.addAttribute("listProducts", listProducts);
@@ -146,13 +168,24 @@ public class TicketProductController {
         logger.info("Actualizando ticket con ID {}", ticket.getId());
         try {
             if (result.hasErrors()) {
-                List<Product> listProducts = productRepository.findAll();
+                List<ProductDTO> listProducts = productCatalogService.getProducts();
                 model.addAttribute("listProducts", listProducts);
                 return "ticket-form.html";
             }
-            ticketRepository.save(ticket);
+            // Solo se actualizan los campos del formulario que han cambiado; los productos y los
+            // totales persistidos se conservan. Si el formulario envía la versión del ticket, se
+            // rechaza la edición cuando otro usuario lo ha modificado después
+            if (ticketService.updateTicketFields(ticket.getId(), ticket.getVersion(),
+                    ticket.getDate(), ticket.getDiscount()).isEmpty()) {
+                logger.warn("No se encontró el ticket con ID {}", ticket.getId());
+                return "redirect:/tickets";
+            }
             logger.info("Ticket con ID {} actualizado con éxito.",
                     ticket.getId());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflicto al actualizar el ticket con ID {}: {}", ticket.getId(), e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    "El ticket ha sido modificado por otro usuario. Revisa los cambios e inténtalo de nuevo.");
         } catch (Exception e) {
             logger.error("Error al actualizar el ticket con ID {}: {}",
                     ticket.getId(), e.getMessage());
@@ -173,8 +206,11 @@ public class TicketProductController {
             redirectAttributes) {
         logger.info("Eliminando ticket con ID {}", id);
         try {
-            ticketRepository.deleteById(id);
-            logger.info("Ticket con ID {} eliminado con éxito.", id);
+            if (ticketService.deleteTicket(id)) {
+                logger.info("Ticket con ID {} eliminado con éxito.", id);
+            } else {
+                logger.warn("No se encontró el ticket con ID {}", id);
+            }
         } catch (Exception e) {
             logger.error("Error al eliminar el ticket con ID {}: {}", id,
                     e.getMessage());
@@ -192,7 +228,7 @@ public class TicketProductController {
     @GetMapping("/detail")
     public String showTicketDetail(@RequestParam("id") Long id, Model model) {
         logger.info("Mostrando detalles para el ticket con ID {}", id);
-        Optional<Ticket> ticketOptional = ticketRepository.findById(id);
+        Optional<Ticket> ticketOptional = ticketRepository.findWithProductsById(id);
         if (ticketOptional.isEmpty()) {
             logger.warn("No se encontró el ticket con ID {}", id);
             return "redirect:/tickets";
@@ -216,9 +252,17 @@ public class TicketProductController {
     public String searchProduct(@RequestParam("productSearch") String
                                         productSearch, @RequestParam("ticketId") Long ticketId, Model model) {
         logger.info("Buscando productos que coincidan con '{}'", productSearch);
-        List<Product> searchResults =
-                productRepository.findByNameContainingIgnoreCase(productSearch);
-        Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
+        // Búsqueda en el índice de trigramas; solo se cargan de la base de datos los resultados
+        List<Long> resultIds = productSearchIndex.suggest(productSearch, 20).stream()
+                .map(ProductDTO::getId)
+                .toList();
+        Map<Long, Product> productsById = productRepository.findAllById(resultIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> searchResults = resultIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        Optional<Ticket> ticketOpt = ticketRepository.findWithProductsById(ticketId);
         if (ticketOpt.isPresent()) {
             model.addAttribute("ticket", ticketOpt.get());
             model.addAttribute("products", ticketOpt.get().getProducts());
@@ -244,15 +288,14 @@ public class TicketProductController {
         logger.info("Añadiendo producto con ID {} al ticket con ID {}",
                 productId, ticketId);
         try {
-            Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
-            Optional<Product> productOpt =
-                    productRepository.findById(productId);
-            if (ticketOpt.isPresent() && productOpt.isPresent()) {
-                Ticket ticket = ticketOpt.get();
-                Product product = productOpt.get();
-                ticket.getProducts().add(product);
-                ticketRepository.save(ticket);
+            // Inserta directamente la fila de product_ticket; la clave primaria detecta los duplicados
+            TicketProductService.Outcome outcome = ticketProductService.addProduct(ticketId, productId);
+            if (outcome == TicketProductService.Outcome.DONE) {
                 logger.info("Producto añadido con éxito.");
+            } else if (outcome == TicketProductService.Outcome.UNCHANGED) {
+                logger.warn("El producto con ID {} ya está en el ticket con ID {}", productId, ticketId);
+                String errorMessage = messageSource.getMessage("msg.ticketcontroller.insert.integrity-violation", null, locale);
+                redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
             } else {
                 logger.warn("No se encontró el ticket o el producto.");
                 redirectAttributes.addFlashAttribute("errorMessage", "No se pudo añadir el producto al ticket.");
@@ -285,25 +328,13 @@ public class TicketProductController {
                                         BigDecimal productPrice, RedirectAttributes redirectAttributes) {
         logger.info("Añadiendo nuevo producto '{}' con precio {} al ticket con ID {}", productName, productPrice, ticketId);
         try {
-            Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
-            if (ticketOpt.isPresent()) {
-                Ticket ticket = ticketOpt.get();
-                // Verificar si ya existe un producto con el mismo nombre en el ticket
-                boolean productExists = ticket.getProducts().stream()
-                        .anyMatch(product ->
-                                product.getName().equalsIgnoreCase(productName));
-                if (productExists) {
-                    logger.warn("El producto con nombre '{}' ya existe en el ticket con ID {}", productName, ticketId);
-                    redirectAttributes.addFlashAttribute("errorMessage", "El producto con el nombre especificado ya está asociado al ticket.");
-                } else {
-                    Product newProduct = new Product();
-                    newProduct.setName(productName);
-                    newProduct.setPrice(productPrice);
-                    productRepository.save(newProduct);
-                    ticket.getProducts().add(newProduct);
-                    ticketRepository.save(ticket);
-                    logger.info("Nuevo producto añadido con éxito.");
-                }
+            TicketProductService.Outcome outcome = ticketProductService.addNewProduct(ticketId, productName, productPrice);
+            if (outcome == TicketProductService.Outcome.DONE) {
+                logger.info("Nuevo producto añadido con éxito.");
+            } else if (outcome == TicketProductService.Outcome.UNCHANGED) {
+                // Ya existe un producto con el mismo nombre en el ticket
+                logger.warn("El producto con nombre '{}' ya existe en el ticket con ID {}", productName, ticketId);
+                redirectAttributes.addFlashAttribute("errorMessage", "El producto con el nombre especificado ya está asociado al ticket.");
             } else {
                 logger.warn("No se encontró el ticket.");
                 redirectAttributes.addFlashAttribute("errorMessage", "No se pudo añadir el producto al ticket.");
@@ -329,15 +360,11 @@ public class TicketProductController {
         logger.info("Eliminando producto con ID {} del ticket con ID {}",
                 productId, ticketId);
         try {
-            Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
-            Optional<Product> productOpt =
-                    productRepository.findById(productId);
-            if (ticketOpt.isPresent() && productOpt.isPresent()) {
-                Ticket ticket = ticketOpt.get();
-                Product product = productOpt.get();
-                ticket.getProducts().remove(product);
-                ticketRepository.save(ticket);
+            TicketProductService.Outcome outcome = ticketProductService.removeProduct(ticketId, productId);
+            if (outcome == TicketProductService.Outcome.DONE) {
                 logger.info("Producto eliminado con éxito.");
+            } else if (outcome == TicketProductService.Outcome.UNCHANGED) {
+                logger.warn("El producto con ID {} no está en el ticket con ID {}", productId, ticketId);
             } else {
                 logger.warn("No se encontró el ticket o el producto.");
                 redirectAttributes.addFlashAttribute("errorMessage", "No se pudo eliminar el producto del ticket.");
@@ -8,5 +8,11 @@ import lombok.Data;
 public class AuthResponseDTO {
 
     private String token;
+    private String refreshToken;
     private String message;
+
+    public AuthResponseDTO(String token, String message) {
+        this.token = token;
+        this.message = message;
+    }
 }
@@ -0,0 +1,26 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Resumen de una importación CSV de regiones o provincias.
+ * `errors` contiene los primeros errores de validación con su número de línea.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoImportReportDTO {
+    private String entity;
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private List<String> errors;
+    private long elapsedMs;
+}
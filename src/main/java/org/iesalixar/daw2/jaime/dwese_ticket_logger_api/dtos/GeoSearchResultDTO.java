@@ -0,0 +1,22 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resultado de la búsqueda geográfica: una región o una provincia con su puntuación.
+ * `type` vale REGION o PROVINCIA.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoSearchResultDTO {
+    private String type;
+    private Long id;
+    private String code;
+    private String name;
+    private double score;
+}
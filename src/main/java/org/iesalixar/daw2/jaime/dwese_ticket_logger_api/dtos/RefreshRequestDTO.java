@@ -0,0 +1,14 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class RefreshRequestDTO {
+
+    @NotEmpty
+    private String refreshToken;
+
+}
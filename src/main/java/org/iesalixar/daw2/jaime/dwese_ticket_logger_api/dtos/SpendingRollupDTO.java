@@ -0,0 +1,25 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Gasto agregado de un periodo (día, semana o mes): número de tickets, importe bruto
+ * (suma de los productos), descuento aplicado e importe neto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpendingRollupDTO {
+    private LocalDate periodStart;
+    private long ticketCount;
+    private BigDecimal gross;
+    private BigDecimal discount;
+    private BigDecimal net;
+}
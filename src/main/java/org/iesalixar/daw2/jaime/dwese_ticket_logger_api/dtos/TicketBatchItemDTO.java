@@ -0,0 +1,34 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Ticket recibido en una carga masiva, con sus líneas de producto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class TicketBatchItemDTO {
+    private Date date;
+    private BigDecimal discount;
+    private List<ProductLine> products;
+
+    /**
+     * Línea de producto de un ticket. Puede hacer referencia a un producto existente
+     * (`productId`) o describir uno nuevo (`name` y `price`).
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class ProductLine {
+        private Long productId;
+        private String name;
+        private BigDecimal price;
+    }
+}
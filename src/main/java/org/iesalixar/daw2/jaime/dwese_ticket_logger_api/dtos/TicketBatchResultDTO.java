@@ -0,0 +1,21 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resultado de la carga de un ticket dentro de una carga masiva.
+ * `index` es la posición del ticket en el array recibido.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketBatchResultDTO {
+    private int index;
+    private Long ticketId;
+    private String status;
+    private String message;
+}
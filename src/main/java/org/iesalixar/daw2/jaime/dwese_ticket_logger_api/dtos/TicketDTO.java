@@ -0,0 +1,24 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Clase DTO (Data Transfer Object) que representa un ticket en los listados de la API.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketDTO {
+    private Long id;
+    private Date date;
+    private BigDecimal discount;
+    private BigDecimal total;
+    private Long version;
+}
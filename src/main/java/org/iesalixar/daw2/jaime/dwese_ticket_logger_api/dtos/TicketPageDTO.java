@@ -0,0 +1,25 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Página de tickets obtenida con paginación por clave (keyset).
+ *
+ * En lugar de un número de página se devuelve un cursor opaco con la posición del último
+ * ticket; para pedir la página siguiente se envía ese cursor. Si `nextCursor` es null no
+ * hay más resultados.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketPageDTO {
+    private List<TicketDTO> content;
+    private int size;
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Resultado de añadir varios productos a un ticket: productos añadidos, productos que
+ * ya estaban en el ticket y productos que no existen.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketProductsResultDTO {
+    private Long ticketId;
+    private List<Long> added;
+    private List<Long> duplicates;
+    private List<Long> notFound;
+}
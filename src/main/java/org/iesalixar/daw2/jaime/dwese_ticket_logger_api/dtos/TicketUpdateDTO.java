@@ -0,0 +1,24 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Clase DTO (Data Transfer Object) para modificar los campos de un ticket.
+ * Los campos nulos no se modifican. `version` es la versión del ticket que el cliente
+ * ha leído; si otro usuario lo ha modificado después, la actualización se rechaza.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketUpdateDTO {
+    private Long version;
+    private Date date;
+    private BigDecimal discount;
+}
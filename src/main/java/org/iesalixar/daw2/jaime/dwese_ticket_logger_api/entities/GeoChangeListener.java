@@ -0,0 +1,37 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.TableVersionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de las entidades geográficas (`Region`, `Provincia`, `Location` y
+ * `Supermarket`) que incrementa la versión de su
+ * tabla al crear, modificar o eliminar un registro.
+ */
+@Component
+public class GeoChangeListener {
+
+    @Autowired
+    @Lazy
+    private TableVersionService tableVersionService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Region) {
+            tableVersionService.bump(TableVersionService.REGIONS);
+        } else if (entity instanceof Provincia) {
+            tableVersionService.bump(TableVersionService.PROVINCIAS);
+        } else if (entity instanceof Location) {
+            tableVersionService.bump(TableVersionService.LOCATIONS);
+        } else if (entity instanceof Supermarket) {
+            tableVersionService.bump(TableVersionService.SUPERMARKETS);
+        }
+    }
+}
@@ -16,6 +16,7 @@ import lombok.NoArgsConstructor;
  */
 @Entity // Marca esta clase como una entidad JPA.
 @Table(name = "locations") // Especifica el nombre de la tabla asociada a esta entidad.
+@EntityListeners(GeoChangeListener.class) // Incrementa la versión de la tabla en cada escritura.
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,6 +15,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "products")
+@EntityListeners(ProductChangeListener.class) // Mantiene el índice de búsqueda y el catálogo de productos.
 @Getter
 @Setter
 @NoArgsConstructor
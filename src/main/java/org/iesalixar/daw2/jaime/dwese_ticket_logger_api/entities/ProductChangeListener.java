@@ -0,0 +1,70 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.LowestPriceService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.ProductCatalogService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.ProductSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+
+/**
+ * Listener JPA de la entidad `Product` que mantiene sincronizados el índice de búsqueda
+ * y el catálogo cacheado de productos al crear, modificar o eliminar un producto, y
+ * registra los precios en el motor de precios mínimos.
+ *
+ * El índice de búsqueda se modifica al confirmar la transacción, para que un producto
+ * cuya creación se deshace no quede como sugerencia.
+ */
+@Component
+public class ProductChangeListener {
+
+    @Autowired
+    @Lazy
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    @Lazy
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    @Lazy
+    private LowestPriceService lowestPriceService;
+
+    @PostPersist
+    @PostUpdate
+    public void onProductSaved(Product product) {
+        Long id = product.getId();
+        String name = product.getName();
+        BigDecimal price = product.getPrice();
+        afterCommit(() -> productSearchIndex.put(id, name, price));
+        productCatalogService.invalidate();
+        lowestPriceService.observe(product.getName(), product.getPrice());
+    }
+
+    @PostRemove
+    public void onProductRemoved(Product product) {
+        Long id = product.getId();
+        afterCommit(() -> productSearchIndex.remove(id));
+        productCatalogService.invalidate();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
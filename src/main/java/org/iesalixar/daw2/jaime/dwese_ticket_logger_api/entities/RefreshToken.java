@@ -0,0 +1,49 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * La clase `RefreshToken` representa un token de refresco opaco emitido a un usuario.
+ * El valor del token nunca se guarda en claro: solo se almacena su resumen SHA-256,
+ * que está indexado de forma única para localizarlo con una sola consulta.
+ *
+ * Los tokens se rotan en cada uso. Todos los tokens derivados del mismo inicio de sesión
+ * comparten `familyId`, de forma que si se reutiliza un token ya rotado se revoca la
+ * familia completa.
+ */
+@Entity
+@Table(name = "refresh_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "user") // Excluye el usuario para evitar cargarlo en el toString.
+@EqualsAndHashCode(exclude = "user")
+        public class RefreshToken {
+            // Identificador único del token. Es autogenerado y clave primaria.
+            @Id
+            @GeneratedValue(strategy = GenerationType.IDENTITY)
+            private Long id;
+            // Resumen SHA-256 (hexadecimal) del valor del token.
+            @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+            private String tokenHash;
+            // Identificador común a todos los tokens obtenidos por rotación desde el mismo login.
+            @Column(name = "family_id", nullable = false, length = 36)
+            private String familyId;
+            // Usuario al que pertenece el token.
+            @ManyToOne(fetch = FetchType.LAZY)
+            @JoinColumn(name = "user_id", nullable = false)
+            private User user;
+            // Fecha de expiración del token.
+            @Column(name = "expires_at", nullable = false)
+            private LocalDateTime expiresAt;
+            // Indica si el token ya se ha usado (rotado) o ha sido revocado.
+            @Column(name = "revoked", nullable = false)
+            private boolean revoked;
+            // Fecha de creación del token.
+            @Column(name = "created_date", nullable = false)
+            private LocalDateTime createdDate;
+        }
@@ -23,6 +23,7 @@ import java.util.List;
  */
 @Entity // Marca esta clase como una entidad gestionada por JPA.
 @Table(name = "regions") // Especifica el nombre de la tabla asociada a esta entidad.
+@EntityListeners(GeoChangeListener.class) // Incrementa la versión de la tabla en cada escritura.
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
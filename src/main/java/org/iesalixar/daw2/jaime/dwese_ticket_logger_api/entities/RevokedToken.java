@@ -0,0 +1,29 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * La clase `RevokedToken` representa un token JWT revocado antes de su expiración.
+ * Se identifica por el claim `jti` del token y se conserva solo hasta la fecha en la
+ * que el token habría caducado por sí mismo.
+ */
+@Entity
+@Table(name = "revoked_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+        public class RevokedToken {
+            // Identificador del token (claim "jti"). Es la clave primaria.
+            @Id
+            @Column(name = "jti", nullable = false, length = 36)
+            private String jti;
+            // Fecha de expiración del token revocado.
+            @Column(name = "expires_at", nullable = false)
+            private LocalDateTime expiresAt;
+        }
@@ -16,6 +16,7 @@ import java.util.List;
  */
 @Entity // Marca esta clase como una entidad JPA.
 @Table(name = "supermarkets") // Especifica el nombre de la tabla asociada a esta entidad.
+@EntityListeners(GeoChangeListener.class) // Incrementa la versión de la tabla en cada escritura.
         @Data
         @NoArgsConstructor
         @AllArgsConstructor
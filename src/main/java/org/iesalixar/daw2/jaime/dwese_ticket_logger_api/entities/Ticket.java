@@ -2,9 +2,11 @@ package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.format.annotation.DateTimeFormat;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 /**
@@ -39,6 +41,27 @@ import java.util.List;
             @Column(name = "discount", nullable = false, precision = 5, scale = 2)
             private BigDecimal discount;
 
+            // Suma de los precios de los productos del ticket. Se mantiene de forma incremental.
+            // Tras la inserción solo se modifica con sentencias SQL relativas (ver TicketProductService),
+            // para que guardar una copia desactualizada del ticket no pueda sobrescribirlo.
+            @Column(name = "subtotal", nullable = false, precision = 12, scale = 2, updatable = false)
+            private BigDecimal subtotal = BigDecimal.ZERO;
+
+            // Total del ticket (subtotal menos el descuento). Se mantiene de forma incremental.
+            @Column(name = "total", nullable = false, precision = 12, scale = 2, updatable = false)
+            private BigDecimal total = BigDecimal.ZERO;
+
+            // Versión de los campos editables (fecha y descuento) para el bloqueo optimista.
+            // Los cambios de productos no la incrementan porque conmutan con cualquier otra edición.
+            @Version
+            @Column(name = "version", nullable = false)
+            private Long version;
+
+            // Huella del contenido actual del ticket, con índice único para detectar duplicados.
+            // Se recalcula por SQL en cada cambio de productos, fecha o descuento (TicketFingerprintService).
+            @Column(name = "fingerprint", length = 64, unique = true, updatable = false)
+            private String fingerprint;
+
             // Ubicación asociada al ticket.
     /*
             @ManyToOne(fetch = FetchType.LAZY)
@@ -47,7 +70,10 @@ import java.util.List;
 
      */
             // Lista de productos asociados al ticket.
+            // En los listados los productos de varios tickets se cargan juntos en una consulta IN
+            // por lote, en lugar de una consulta por ticket.
             @ManyToMany
+            @BatchSize(size = 100)
             @JoinTable(
                     name = "product_ticket",
                     joinColumns = @JoinColumn(name = "ticket_id"),
@@ -55,19 +81,71 @@ import java.util.List;
             )
             private List<Product> products;
             /**
-             * Calcula el total del ticket sumando los precios de todos los productos.
+             * Añade un producto al ticket y suma su precio al subtotal y al total.
+             * Los totales solo se guardan al insertar el ticket; en un ticket ya guardado este
+             * cambio queda en la copia en memoria (ver TicketProductService).
+             *
+             * @param product producto a añadir.
+             */
+            public void addProduct(Product product) {
+                if (products == null) {
+                    products = new ArrayList<>();
+                }
+                products.add(product);
+                addToSubtotal(product.getPrice());
+            }
+
+            /**
+             * Quita un producto del ticket y resta su precio del subtotal y del total.
+             * Como en addProduct, los totales de un ticket ya guardado no se persisten.
              *
-             * @return el total calculado de los productos menos el descuento.
+             * @param product producto a quitar.
+             * @return true si el producto estaba en el ticket.
              */
-            @Transient
-            public BigDecimal getTotal() {
-                if (products == null || products.isEmpty()) {
-                    return BigDecimal.ZERO;
+            public boolean removeProduct(Product product) {
+                if (products != null && products.remove(product)) {
+                    addToSubtotal(product.getPrice().negate());
+                    return true;
                 }
-                BigDecimal total = BigDecimal.ZERO;
-                for (Product product : products) {
-                    total = total.add(product.getPrice());
+                return false;
+            }
+
+            /**
+             * Suma un importe al subtotal y recalcula el total en la copia en memoria del ticket.
+             * Los totales persistidos solo cambian con las sentencias SQL de TicketProductService
+             * y TicketService.
+             *
+             * @param amount importe a sumar (negativo para restar).
+             */
+            public void addToSubtotal(BigDecimal amount) {
+                this.subtotal = (subtotal == null ? BigDecimal.ZERO : subtotal).add(amount);
+                this.total = applyDiscount(subtotal, discount);
+            }
+
+            /**
+             * Recalcula el subtotal y el total a partir de la lista completa de productos.
+             * Solo es necesario al crear un ticket con productos o al reparar totales incoherentes.
+             */
+            public void recalculateTotals() {
+                BigDecimal sum = BigDecimal.ZERO;
+                if (products != null) {
+                    for (Product product : products) {
+                        sum = sum.add(product.getPrice());
+                    }
                 }
+                this.subtotal = sum;
+                this.total = applyDiscount(sum, discount);
+            }
+
+            /**
+             * Aplica el porcentaje de descuento a un subtotal.
+             *
+             * @param subtotal suma de los precios de los productos.
+             * @param discount porcentaje de descuento, puede ser null.
+             * @return el total con el descuento aplicado, redondeado a dos decimales.
+             */
+            public static BigDecimal applyDiscount(BigDecimal subtotal, BigDecimal discount) {
+                BigDecimal total = subtotal == null ? BigDecimal.ZERO : subtotal;
 
                 // Aplicar descuento si existe
                 if (discount != null && discount.compareTo(BigDecimal.ZERO) > 0) {
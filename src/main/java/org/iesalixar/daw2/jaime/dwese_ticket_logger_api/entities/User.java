@@ -33,7 +33,7 @@ import java.util.Set;
 @AllArgsConstructor
 @ToString(exclude = "roles") // Excluye roles para evitar problemas de recursión en el toString.
 @EqualsAndHashCode(exclude = "roles") // Excluye roles para evitar recursión en equals y hashCode.
-@EntityListeners(AuditingEntityListener.class) // Habilita las anotaciones de auditoría.
+@EntityListeners({AuditingEntityListener.class, UserCacheListener.class}) // Auditoría e invalidación de cachés de autenticación.
         public class User {
             // Campo que almacena el identificador único del usuario. Es autogenerado y clave primaria.
             @Id
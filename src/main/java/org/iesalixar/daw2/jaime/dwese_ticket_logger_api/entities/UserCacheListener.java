@@ -0,0 +1,64 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.CustomUserDetailsService;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services.UserTokenStateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Listener JPA de la entidad `User` que invalida las cachés de autenticación cuando se
+ * modifica o elimina un usuario (cambio de contraseña, de roles o de habilitación).
+ *
+ * La invalidación se repite al confirmar la transacción: si otra petición vuelve a cargar
+ * el usuario entre el flush y el commit, guardaría los datos anteriores durante todo el TTL.
+ * Los cambios que solo afectan a los roles (@ManyToMany) no lanzan @PostUpdate, por lo que
+ * quien los modifica debe llamar a {@link #evict(String)} (ver UserService.updateRoles).
+ *
+ * Hibernate obtiene el listener del contexto de Spring, por lo que admite inyección.
+ * Los servicios se inyectan con @Lazy para no crear un ciclo con los repositorios.
+ */
+@Component
+public class UserCacheListener {
+
+    @Autowired
+    @Lazy
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    @Lazy
+    private UserTokenStateService userTokenStateService;
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        evict(user.getUsername());
+    }
+
+    /**
+     * Invalida las cachés de autenticación de un usuario ahora y, si hay una transacción
+     * activa, de nuevo al confirmarla.
+     *
+     * @param username nombre de usuario.
+     */
+    public void evict(String username) {
+        evictNow(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(username);
+                }
+            });
+        }
+    }
+
+    private void evictNow(String username) {
+        userDetailsService.evict(username);
+        userTokenStateService.invalidate(username);
+    }
+}
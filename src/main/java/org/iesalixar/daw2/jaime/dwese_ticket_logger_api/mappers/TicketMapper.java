@@ -0,0 +1,25 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.mappers;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TicketMapper {
+
+    /**
+     * Convierte una entidad `Ticket` a un `TicketDTO`.
+     *
+     * @param ticket Entidad del ticket.
+     * @return DTO correspondiente.
+     */
+    public TicketDTO toDTO(Ticket ticket) {
+        TicketDTO dto = new TicketDTO();
+        dto.setId(ticket.getId());
+        dto.setDate(ticket.getDate());
+        dto.setDiscount(ticket.getDiscount());
+        dto.setTotal(ticket.getTotal()); // Total persistido, no requiere cargar los productos
+        dto.setVersion(ticket.getVersion());
+        return dto;
+    }
+}
@@ -0,0 +1,64 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+/**
+ * Repositorio para la entidad RefreshToken que extiende JpaRepository.
+ * Proporciona la búsqueda por resumen del token y la revocación de familias de tokens.
+ */
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    /**
+     * Busca un token de refresco por el resumen SHA-256 de su valor.
+     *
+     * @param tokenHash resumen del token.
+     * @return un Optional con el token si existe.
+     */
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Marca un token como usado solo si aún no lo estaba. La condición se evalúa sobre la fila
+     * bloqueada, por lo que de dos rotaciones simultáneas del mismo token solo una obtiene 1.
+     *
+     * @param id identificador del token.
+     * @return 1 si el token se ha marcado, 0 si ya estaba usado o revocado.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.id = :id AND r.revoked = false")
+    int markUsed(@Param("id") Long id);
+
+    /**
+     * Revoca todos los tokens de un usuario.
+     *
+     * @param userId identificador del usuario.
+     * @return número de tokens revocados.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.user.id = :userId AND r.revoked = false")
+    int revokeAllByUserId(@Param("userId") Long userId);
+
+    /**
+     * Revoca todos los tokens de una familia.
+     *
+     * @param familyId identificador de la familia.
+     * @return número de tokens revocados.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.familyId = :familyId AND r.revoked = false")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    /**
+     * Elimina los tokens caducados.
+     *
+     * @param now fecha de referencia.
+     * @return número de tokens eliminados.
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
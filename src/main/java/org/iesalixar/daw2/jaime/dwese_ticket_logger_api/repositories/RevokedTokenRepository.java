@@ -0,0 +1,34 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+/**
+ * Repositorio para la entidad RevokedToken que extiende JpaRepository.
+ * Proporciona la lectura de los identificadores vigentes y el borrado de los caducados.
+ */
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    /**
+     * Obtiene los identificadores de los tokens revocados que aún no han caducado.
+     *
+     * @param now fecha de referencia.
+     * @return lista de identificadores (jti).
+     */
+    @Query("SELECT r.jti FROM RevokedToken r WHERE r.expiresAt > :now")
+    List<String> findActiveJtis(@Param("now") LocalDateTime now);
+
+    /**
+     * Elimina las revocaciones de tokens que ya han caducado.
+     *
+     * @param now fecha de referencia.
+     * @return número de filas eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
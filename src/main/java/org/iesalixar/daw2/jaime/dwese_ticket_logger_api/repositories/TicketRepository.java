@@ -1,7 +1,14 @@
 package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories;
+import java.math.BigDecimal;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 /**
  * Repositorio para la entidad Ticket que extiende JpaRepository.
  * Proporciona operaciones CRUD y consultas personalizadas para la entidad
@@ -17,4 +24,75 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     especificado.
      */
     List<Ticket> findByDiscountGreaterThan(Float discount);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene la primera página de tickets ordenados por fecha e id descendentes,
+     * aplicando los filtros opcionales de rango de fechas y descuento.
+     *
+     * @param from fecha mínima (incluida), o null.
+     * @param to fecha máxima (excluida), o null.
+     * @param minDiscount descuento mínimo, o null.
+     * @param maxDiscount descuento máximo, o null.
+     * @param minTotal total mínimo del ticket, o null.
+     * @param limit número máximo de tickets.
+     * @return lista de tickets.
+     */
+    @Query("SELECT t FROM Ticket t " +
+            "WHERE (:from IS NULL OR t.date >= :from) AND (:to IS NULL OR t.date < :to) " +
+            "AND (:minDiscount IS NULL OR t.discount >= :minDiscount) " +
+            "AND (:maxDiscount IS NULL OR t.discount <= :maxDiscount) " +
+            "AND (:minTotal IS NULL OR t.total >= :minTotal) " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<Ticket> findFirstPage(@Param("from") Date from, @Param("to") Date to,
+                               @Param("minDiscount") BigDecimal minDiscount,
+                               @Param("maxDiscount") BigDecimal maxDiscount,
+                               @Param("minTotal") BigDecimal minTotal, Limit limit);
+
+    /**
+     * Obtiene la página de tickets que sigue a la posición (cursorDate, cursorId).
+     * La condición sobre (date, id) permite saltar directamente a la posición usando el
+     * índice, de modo que las páginas profundas cuestan lo mismo que la primera.
+     *
+     * @param cursorDate fecha del último ticket de la página anterior.
+     * @param cursorId id del último ticket de la página anterior.
+     * @param from fecha mínima (incluida), o null.
+     * @param to fecha máxima (excluida), o null.
+     * @param minDiscount descuento mínimo, o null.
+     * @param maxDiscount descuento máximo, o null.
+     * @param minTotal total mínimo del ticket, o null.
+     * @param limit número máximo de tickets.
+     * @return lista de tickets.
+     */
+    @Query("SELECT t FROM Ticket t " +
+            "WHERE (t.date < :cursorDate OR (t.date = :cursorDate AND t.id < :cursorId)) " +
+            "AND (:from IS NULL OR t.date >= :from) AND (:to IS NULL OR t.date < :to) " +
+            "AND (:minDiscount IS NULL OR t.discount >= :minDiscount) " +
+            "AND (:maxDiscount IS NULL OR t.discount <= :maxDiscount) " +
+            "AND (:minTotal IS NULL OR t.total >= :minTotal) " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<Ticket> findPageAfter(@Param("cursorDate") Date cursorDate, @Param("cursorId") Long cursorId,
+                               @Param("from") Date from, @Param("to") Date to,
+                               @Param("minDiscount") BigDecimal minDiscount,
+                               @Param("maxDiscount") BigDecimal maxDiscount,
+                               @Param("minTotal") BigDecimal minTotal, Limit limit);
+
+    /**
+     * Obtiene un ticket junto con sus productos en una única consulta (fetch join).
+     * Se usa en las vistas de detalle, que siempre recorren los productos.
+     *
+     * @param id identificador del ticket.
+     * @return un Optional con el ticket y sus productos ya inicializados.
+     */
+    @Query("SELECT DISTINCT t FROM Ticket t LEFT JOIN FETCH t.products WHERE t.id = :id")
+    Optional<Ticket> findWithProductsById(@Param("id") Long id);
+
+    /**
+     * Obtiene todos los tickets con sus productos cargados mediante un entity graph,
+     * para el listado completo que calcula el total de cada ticket.
+     *
+     * @return lista de tickets con sus productos.
+     */
+    @EntityGraph(attributePaths = "products")
+    @Query("SELECT DISTINCT t FROM Ticket t")
+    List<Ticket> findAllWithProducts();
+}
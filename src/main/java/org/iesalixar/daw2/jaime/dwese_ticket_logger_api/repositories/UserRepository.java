@@ -3,7 +3,9 @@ package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 /**
  * Repositorio para la entidad User que extiende JpaRepository.
@@ -21,4 +23,24 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT u.id FROM User u WHERE u.username= :username")
     Long getIdByUsername(String username);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene únicamente los datos necesarios para decidir si los tokens de un usuario
+     * siguen siendo válidos, sin cargar sus roles.
+     *
+     * @param username el nombre de usuario a buscar.
+     * @return un Optional con el estado del usuario, o vacío si no existe.
+     */
+    @Query("SELECT u.enabled AS enabled, u.lastPasswordChangeDate AS lastPasswordChangeDate " +
+            "FROM User u WHERE u.username = :username")
+    Optional<TokenStateView> findTokenStateByUsername(@Param("username") String username);
+
+    /**
+     * Proyección con el estado del usuario relevante para la validación de tokens.
+     */
+    interface TokenStateView {
+        Boolean getEnabled();
+
+        LocalDateTime getLastPasswordChangeDate();
+    }
+}
@@ -3,20 +3,55 @@ package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Role;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.User;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     @Autowired
     private UserRepository userRepository;
 
+    // Número máximo de usuarios que se mantienen en caché
+    @Value("${security.user-cache.max.entries:10000}")
+    private int cacheMaxEntries;
+
+    // Segundos que se reutiliza una entrada antes de volver a leerla de la base de datos
+    @Value("${security.user-cache.ttl.seconds:300}")
+    private long cacheTtlSeconds;
+
+    /**
+     * Caché de los datos de autenticación de cada usuario. Se guardan los datos y no el
+     * objeto UserDetails porque Spring Security borra la contraseña del principal tras
+     * autenticar; cada llamada construye un UserDetails nuevo a partir de la entrada.
+     */
+    private final Map<String, CachedUser> cache = new ConcurrentHashMap<>();
+
+    // Métricas de la caché
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Entradas descartadas por falta de sitio, por caducar o por invalidarse
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Datos inmutables de un usuario, con los roles ya aplanados a un array de autoridades.
+     */
+    private record CachedUser(String username, String password, String[] authorities, boolean enabled,
+                              long loadedAt) {
+    }
+
     /**
      * Carga los detalles del usuario a partir de su nombre de usuario.
+     * Los datos se sirven desde caché mientras no caduquen ni se invaliden.
      *
      * @param username El nombre de usuario a buscar.
      * @return Un objeto UserDetails con la información de autenticación del usuario.
@@ -24,21 +59,83 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
+        long now = System.currentTimeMillis();
+        CachedUser cached = cache.get(username);
+        if (cached != null && now - cached.loadedAt() <= cacheTtlSeconds * 1000) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            if (cached != null) {
+                // La entrada caducada se sustituye por la nueva lectura
+                evictions.incrementAndGet();
+            }
+            cached = load(username, now);
+            put(cached);
+        }
 
-        // Convierte los roles de usuario en GrantedAuthority
         // Para llamar al User original de Spring y no confundirlo con el nuestro se suele poner el paquete completo
-        return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
-                .password(user.getPassword())
-                .authorities(user.getRoles().stream()
-                        .map(Role::getName)
-                        .toList()
-                        .toArray(new String[0]))
+        return org.springframework.security.core.userdetails.User.withUsername(cached.username())
+                .password(cached.password())
+                .authorities(cached.authorities())
                 .accountExpired(false)
                 .accountLocked(false)
                 .credentialsExpired(false)
-                .disabled(!user.isEnabled())
+                .disabled(!cached.enabled())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Descarta la entrada de un usuario. Se invoca cuando cambian su contraseña,
+     * sus roles o su estado de habilitación.
+     *
+     * @param username nombre de usuario.
+     */
+    public void evict(String username) {
+        if (username != null && cache.remove(username) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    public long getCacheHits() {
+        return hits.get();
+    }
+
+    public long getCacheMisses() {
+        return misses.get();
+    }
+
+    public long getCacheEvictions() {
+        return evictions.get();
+    }
+
+    public double getCacheHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private CachedUser load(String username, long now) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
+
+        // Convierte los roles de usuario en GrantedAuthority
+        String[] authorities = user.getRoles().stream()
+                .map(Role::getName)
+                .toArray(String[]::new);
+        return new CachedUser(user.getUsername(), user.getPassword(), authorities, user.isEnabled(), now);
+    }
+
+    private void put(CachedUser entry) {
+        // Si la caché está llena se descarta una entrada cualquiera para mantenerla acotada
+        Iterator<String> iterator = cache.keySet().iterator();
+        while (cache.size() >= cacheMaxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+        cache.put(entry.username(), entry);
+    }
+}
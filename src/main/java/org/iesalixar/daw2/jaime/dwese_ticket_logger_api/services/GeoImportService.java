@@ -0,0 +1,194 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.GeoImportReportDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Servicio de importación masiva de regiones y provincias desde CSV.
+ *
+ * El fichero se lee línea a línea y cada fila se valida en memoria. Las filas válidas se
+ * insertan o actualizan por código (INSERT ... ON DUPLICATE KEY UPDATE) en lotes JDBC,
+ * sin una consulta de existencia por fila. Los códigos existentes se cargan una sola vez
+ * al principio para distinguir en el resumen las filas nuevas de las actualizadas.
+ */
+@Service
+public class GeoImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoImportService.class);
+
+    // Número máximo de errores detallados en el resumen
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // Límites de las columnas, los mismos que las validaciones de las entidades
+    private static final int MAX_CODE_LENGTH = 2;
+    private static final int MAX_NAME_LENGTH = 100;
+
+    /**
+     * Tablas que admiten importación.
+     */
+    public enum Target {
+        REGIONS("regions", TableVersionService.REGIONS),
+        PROVINCIAS("provincias", TableVersionService.PROVINCIAS);
+
+        private final String table;
+        private final String versionKey;
+
+        Target(String table, String versionKey) {
+            this.table = table;
+            this.versionKey = versionKey;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    // Filas enviadas en cada lote JDBC
+    @Value("${geo.import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Importa un CSV con las columnas code,name. La primera línea puede ser la cabecera.
+     *
+     * @param target tabla de destino.
+     * @param input contenido del CSV en UTF-8.
+     * @return el resumen de la importación.
+     * @throws IOException si no se puede leer el contenido.
+     */
+    @Transactional
+    public GeoImportReportDTO importCsv(Target target, InputStream input) throws IOException {
+        long start = System.currentTimeMillis();
+        String upsertSql = "INSERT INTO " + target.table + " (code, name) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE name = VALUES(name)";
+
+        Set<String> knownCodes = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT code FROM " + target.table, String.class));
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        List<String> errors = new ArrayList<>();
+        long rowsRead = 0;
+        long inserted = 0;
+        long updated = 0;
+        long rejected = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1); // BOM de UTF-8
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = parseLine(line);
+                if (lineNumber == 1 && fields.size() >= 2 && "code".equalsIgnoreCase(fields.get(0).trim())) {
+                    continue; // Cabecera
+                }
+                rowsRead++;
+
+                String error = validate(fields);
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add("Línea " + lineNumber + ": " + error);
+                    }
+                    continue;
+                }
+                String code = fields.get(0).trim();
+                if (knownCodes.add(code)) {
+                    inserted++;
+                } else {
+                    updated++;
+                }
+                batch.add(new Object[]{code, fields.get(1).trim()});
+                if (batch.size() >= batchSize) {
+                    jdbcTemplate.batchUpdate(upsertSql, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(upsertSql, batch);
+        }
+
+        // Las sentencias JDBC no pasan por los listeners JPA: se invalida aquí la versión de la tabla
+        if (inserted + updated > 0) {
+            tableVersionService.bump(target.versionKey);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        logger.info("Importación de {}: {} filas, {} nuevas, {} actualizadas, {} rechazadas en {} ms.",
+                target.table, rowsRead, inserted, updated, rejected, elapsed);
+        return new GeoImportReportDTO(target.table, rowsRead, inserted, updated, rejected, errors, elapsed);
+    }
+
+    /**
+     * Valida una fila del CSV.
+     *
+     * @return el mensaje de error, o null si la fila es válida.
+     */
+    private String validate(List<String> fields) {
+        if (fields.size() != 2) {
+            return "se esperaban 2 columnas (code,name) y hay " + fields.size() + ".";
+        }
+        String code = fields.get(0).trim();
+        String name = fields.get(1).trim();
+        if (code.isEmpty() || code.length() > MAX_CODE_LENGTH) {
+            return "el código debe tener entre 1 y " + MAX_CODE_LENGTH + " caracteres.";
+        }
+        if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+            return "el nombre debe tener entre 1 y " + MAX_NAME_LENGTH + " caracteres.";
+        }
+        return null;
+    }
+
+    /**
+     * Separa una línea CSV en campos. Admite campos entre comillas dobles con comas y
+     * comillas escapadas ("").
+     */
+    private List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,172 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.GeoSearchResultDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.SearchText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice de búsqueda en memoria sobre los nombres de las regiones y las provincias.
+ *
+ * No distingue mayúsculas ni acentos ("cadiz" encuentra "Cádiz") y tolera errores de
+ * escritura: los candidatos se puntúan por trigramas compartidos y, si no hay suficientes,
+ * por distancia de edición con el comienzo de cada palabra. El índice es una instantánea
+ * inmutable que se reconstruye cuando cambia la versión de alguna de las dos tablas.
+ */
+@Service
+public class GeoSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoSearchIndex.class);
+
+    // Distancia de edición máxima admitida en la búsqueda aproximada
+    private static final int MAX_EDIT_DISTANCE = 2;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    private volatile Snapshot snapshot;
+
+    private record Entry(String type, Long id, String code, String name, String normalized,
+                         String[] words, Set<String> trigrams) {
+    }
+
+    private record Snapshot(String version, List<Entry> entries, Map<String, List<Integer>> postings) {
+    }
+
+    private record Scored(Entry entry, double score) {
+    }
+
+    /**
+     * Busca regiones y provincias por nombre.
+     *
+     * @param query texto buscado.
+     * @param limit número máximo de resultados.
+     * @return resultados ordenados por relevancia.
+     */
+    public List<GeoSearchResultDTO> search(String query, int limit) {
+        String normalized = SearchText.normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = currentSnapshot();
+
+        // 1. Candidatos por trigramas compartidos
+        Set<String> queryTrigrams = SearchText.trigrams(normalized, false);
+        Map<Integer, Integer> matches = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            List<Integer> positions = current.postings().get(trigram);
+            if (positions != null) {
+                for (Integer position : positions) {
+                    matches.merge(position, 1, Integer::sum);
+                }
+            }
+        }
+        Map<Integer, Scored> scored = new HashMap<>();
+        for (Map.Entry<Integer, Integer> match : matches.entrySet()) {
+            Entry entry = current.entries().get(match.getKey());
+            double score = match.getValue() / (double) (queryTrigrams.size() + entry.trigrams().size() - match.getValue());
+            if (entry.normalized().startsWith(normalized)) {
+                score += 1;
+            } else if (entry.normalized().contains(normalized)) {
+                score += 0.5;
+            }
+            scored.put(match.getKey(), new Scored(entry, score));
+        }
+
+        // 2. Si faltan resultados, búsqueda aproximada por distancia de edición
+        if (scored.size() < limit) {
+            for (int i = 0; i < current.entries().size(); i++) {
+                if (scored.containsKey(i)) {
+                    continue;
+                }
+                Entry entry = current.entries().get(i);
+                int distance = prefixDistance(normalized, entry.words());
+                if (distance <= Math.min(MAX_EDIT_DISTANCE, normalized.length() / 3)) {
+                    scored.put(i, new Scored(entry, 0.5 - distance / (double) (normalized.length() + 1)));
+                }
+            }
+        }
+
+        return scored.values().stream()
+                .sorted(Comparator.comparingDouble(Scored::score).reversed()
+                        .thenComparing(s -> s.entry().name()))
+                .limit(limit)
+                .map(s -> new GeoSearchResultDTO(s.entry().type(), s.entry().id(), s.entry().code(),
+                        s.entry().name(), Math.round(s.score() * 1000) / 1000.0))
+                .toList();
+    }
+
+    /**
+     * Devuelve el número de registros indexados.
+     */
+    public int getSize() {
+        return currentSnapshot().entries().size();
+    }
+
+    /**
+     * Menor distancia de edición entre la consulta y el comienzo de alguna palabra del nombre.
+     */
+    private int prefixDistance(String query, String[] words) {
+        int best = Integer.MAX_VALUE;
+        for (String word : words) {
+            String prefix = word.length() > query.length() ? word.substring(0, query.length()) : word;
+            best = Math.min(best, SearchText.editDistance(query, prefix));
+        }
+        return best;
+    }
+
+    private Snapshot currentSnapshot() {
+        String version = tableVersionService.combinedEtag(TableVersionService.REGIONS, TableVersionService.PROVINCIAS);
+        Snapshot current = snapshot;
+        if (current != null && current.version().equals(version)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || !current.version().equals(version)) {
+                current = build(version);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private Snapshot build(String version) {
+        long start = System.nanoTime();
+        List<Entry> entries = new ArrayList<>();
+        RowCallbackHandler regionHandler = rs -> entries.add(entry("REGION", rs.getLong("id"), rs.getString("code"), rs.getString("name")));
+        RowCallbackHandler provinciaHandler = rs -> entries.add(entry("PROVINCIA", rs.getLong("id"), rs.getString("code"), rs.getString("name")));
+        jdbcTemplate.query("SELECT id, code, name FROM regions", regionHandler);
+        jdbcTemplate.query("SELECT id, code, name FROM provincias", provinciaHandler);
+
+        Map<String, List<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            for (String trigram : entries.get(i).trigrams()) {
+                postings.computeIfAbsent(trigram, key -> new ArrayList<>()).add(i);
+            }
+        }
+        logger.info("Índice geográfico construido: {} registros en {} ms.", entries.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return new Snapshot(version, List.copyOf(entries), postings);
+    }
+
+    private Entry entry(String type, Long id, String code, String name) {
+        String normalized = SearchText.normalize(name);
+        return new Entry(type, id, code, name, normalized, normalized.split(" "),
+                SearchText.trigrams(normalized, true));
+    }
+}
@@ -0,0 +1,197 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio que construye la jerarquía geográfica región → provincia → ubicación (con su supermercado).
+ *
+ * La jerarquía se carga con una consulta plana por nivel y se ensambla en memoria, en lugar de
+ * recorrer las colecciones perezosas de las entidades. El árbol se guarda etiquetado con la
+ * versión de las tablas implicadas y se reconstruye cuando alguna cambia. La respuesta JSON se
+ * escribe nodo a nodo en el flujo de salida, sin generar el documento completo en memoria.
+ */
+@Service
+public class GeoTreeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoTreeService.class);
+
+    private static final String[] TABLES = {TableVersionService.REGIONS, TableVersionService.PROVINCIAS,
+            TableVersionService.LOCATIONS, TableVersionService.SUPERMARKETS};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private volatile Tree tree;
+
+    public record LocationNode(long id, String address, String city, long supermarketId, String supermarketName) {
+    }
+
+    public record ProvinciaNode(long id, String code, String name, List<LocationNode> locations) {
+    }
+
+    public record RegionNode(long id, String code, String name, ProvinciaNode provincia) {
+    }
+
+    /**
+     * Árbol geográfico de una versión concreta de las tablas.
+     *
+     * @param etag ETag fuerte de la versión.
+     * @param regions regiones con su provincia.
+     * @param unassigned provincias que no pertenecen a ninguna región.
+     */
+    public record Tree(String etag, List<RegionNode> regions, List<ProvinciaNode> unassigned) {
+    }
+
+    /**
+     * Devuelve el árbol de la versión actual, construyéndolo si las tablas han cambiado.
+     *
+     * @return el árbol geográfico.
+     */
+    public Tree getTree() {
+        String etag = tableVersionService.combinedEtag(TABLES);
+        Tree current = tree;
+        if (current != null && current.etag().equals(etag)) {
+            return current;
+        }
+        synchronized (this) {
+            current = tree;
+            if (current == null || !current.etag().equals(etag)) {
+                current = build(etag);
+                tree = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Escribe el árbol en formato JSON en el flujo de salida.
+     *
+     * @param tree árbol obtenido con {@link #getTree()}.
+     * @param outputStream flujo de la respuesta HTTP.
+     * @throws tools.jackson.core.JacksonException si falla la escritura (por ejemplo, si el cliente se desconecta).
+     */
+    public void write(Tree tree, OutputStream outputStream) {
+        try (JsonGenerator generator = jsonMapper.createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeArrayPropertyStart("regions");
+            for (RegionNode region : tree.regions()) {
+                generator.writeStartObject();
+                generator.writeNumberProperty("id", region.id());
+                generator.writeStringProperty("code", region.code());
+                generator.writeStringProperty("name", region.name());
+                generator.writeArrayPropertyStart("provincias");
+                if (region.provincia() != null) {
+                    writeProvincia(generator, region.provincia());
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeArrayPropertyStart("unassigned");
+            for (ProvinciaNode provincia : tree.unassigned()) {
+                writeProvincia(generator, provincia);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeProvincia(JsonGenerator generator, ProvinciaNode provincia) {
+        generator.writeStartObject();
+        generator.writeNumberProperty("id", provincia.id());
+        generator.writeStringProperty("code", provincia.code());
+        generator.writeStringProperty("name", provincia.name());
+        generator.writeArrayPropertyStart("locations");
+        for (LocationNode location : provincia.locations()) {
+            generator.writeStartObject();
+            generator.writeNumberProperty("id", location.id());
+            generator.writeStringProperty("address", location.address());
+            generator.writeStringProperty("city", location.city());
+            generator.writeObjectPropertyStart("supermarket");
+            generator.writeNumberProperty("id", location.supermarketId());
+            generator.writeStringProperty("name", location.supermarketName());
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private Tree build(String etag) {
+        long start = System.nanoTime();
+
+        // 1. Ubicaciones con su supermercado, agrupadas por provincia (si las tablas existen)
+        Map<Long, List<LocationNode>> locationsByProvincia = new HashMap<>();
+        if (tableExists("locations") && tableExists("supermarkets")) {
+            RowCallbackHandler locationHandler = rs -> locationsByProvincia
+                    .computeIfAbsent(rs.getLong("provincia_id"), key -> new ArrayList<>())
+                    .add(new LocationNode(rs.getLong("id"), rs.getString("address"), rs.getString("city"),
+                            rs.getLong("supermarket_id"), rs.getString("supermarket_name")));
+            jdbcTemplate.query("SELECT l.id, l.address, l.city, l.provincia_id, s.id AS supermarket_id, " +
+                    "s.name AS supermarket_name FROM locations l JOIN supermarkets s ON s.id = l.supermarket_id " +
+                    "ORDER BY l.provincia_id, l.city, l.id", locationHandler);
+        }
+
+        // 2. Provincias
+        Map<Long, ProvinciaNode> provincias = new LinkedHashMap<>();
+        RowCallbackHandler provinciaHandler = rs -> {
+            long id = rs.getLong("id");
+            provincias.put(id, new ProvinciaNode(id, rs.getString("code"), rs.getString("name"),
+                    List.copyOf(locationsByProvincia.getOrDefault(id, List.of()))));
+        };
+        jdbcTemplate.query("SELECT id, code, name FROM provincias ORDER BY name", provinciaHandler);
+
+        // 3. Regiones, enlazadas con su provincia por regions.provincia_id
+        List<RegionNode> regions = new ArrayList<>();
+        Map<Long, ProvinciaNode> unassigned = new LinkedHashMap<>(provincias);
+        RowCallbackHandler regionHandler = rs -> {
+            Long provinciaId = getNullableLong(rs, "provincia_id");
+            ProvinciaNode provincia = provinciaId == null ? null : provincias.get(provinciaId);
+            if (provincia != null) {
+                unassigned.remove(provinciaId);
+            }
+            regions.add(new RegionNode(rs.getLong("id"), rs.getString("code"), rs.getString("name"), provincia));
+        };
+        jdbcTemplate.query("SELECT id, code, name, provincia_id FROM regions ORDER BY name", regionHandler);
+
+        logger.info("Árbol geográfico construido: {} regiones y {} provincias en {} ms.", regions.size(),
+                provincias.size(), (System.nanoTime() - start) / 1_000_000);
+        return new Tree(etag, List.copyOf(regions), List.copyOf(unassigned.values()));
+    }
+
+    private boolean tableExists(String table) {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), null, table, new String[]{"TABLE"})) {
+                return rs.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private static Long getNullableLong(ResultSet rs, String column) throws java.sql.SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+}
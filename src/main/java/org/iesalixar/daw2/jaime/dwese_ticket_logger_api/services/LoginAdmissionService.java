@@ -0,0 +1,274 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Servicio de control de admisión para los inicios de sesión.
+ *
+ * Limita los intentos con cubos de tokens sin bloqueos en tres niveles: por IP, por par
+ * (usuario, IP) y por usuario. Los dos primeros se gastan en cada intento; el cubo del
+ * usuario, común a todas las IPs, solo se gasta con las contraseñas incorrectas y tiene más
+ * capacidad, de modo que frena los ataques contra una cuenta desde muchas IPs sin que unos
+ * pocos intentos ajenos basten para bloquear al usuario legítimo.
+ *
+ * La comprobación de la contraseña se ejecuta en el pool dedicado y se registran la
+ * latencia del hash y la ocupación de la cola.
+ */
+@Service
+public class LoginAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginAdmissionService.class);
+
+    @Autowired
+    private ThreadPoolExecutor passwordHashingExecutor;
+
+    @Value("${auth.rate.username.capacity:20}")
+    private int usernameCapacity; // Intentos fallidos seguidos permitidos por usuario, desde cualquier IP
+
+    @Value("${auth.rate.username.refill.per.minute:10}")
+    private int usernameRefillPerMinute; // Intentos fallidos recuperados por minuto y usuario
+
+    @Value("${auth.rate.user-ip.capacity:5}")
+    private int userIpCapacity; // Intentos seguidos permitidos por usuario desde una IP
+
+    @Value("${auth.rate.user-ip.refill.per.minute:5}")
+    private int userIpRefillPerMinute; // Intentos recuperados por minuto, usuario e IP
+
+    @Value("${auth.rate.ip.capacity:20}")
+    private int ipCapacity; // Intentos seguidos permitidos por IP
+
+    @Value("${auth.rate.ip.refill.per.minute:20}")
+    private int ipRefillPerMinute; // Intentos recuperados por minuto e IP
+
+    @Value("${auth.hashing.timeout.ms:5000}")
+    private long hashingTimeoutMs; // Tiempo máximo de espera del resultado del hash
+
+    private final Map<String, TokenBucket> usernameBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> userIpBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+
+    // Métricas de la comprobación de contraseñas
+    private final AtomicLong hashCount = new AtomicLong();
+    private final AtomicLong hashTotalNanos = new AtomicLong();
+    private final AtomicLong hashMaxNanos = new AtomicLong();
+    private final AtomicLong rejectedByRate = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong rejectedByQueue = new AtomicLong();
+
+    /**
+     * Comprueba si se admite un nuevo intento de login para el usuario y la IP indicados.
+     * El intento se rechaza si el usuario ha agotado sus intentos fallidos o si la IP o el par
+     * (usuario, IP) no tienen tokens. Solo se consumen tokens si ambos cubos por intento tienen
+     * alguno, de modo que un intento rechazado por un cubo no gasta el otro.
+     *
+     * @param username nombre de usuario del intento.
+     * @param ip dirección IP del cliente.
+     * @return true si el intento puede continuar.
+     */
+    public boolean tryAcquire(String username, String ip) {
+        long now = System.nanoTime();
+        String user = username.toLowerCase();
+        TokenBucket usernameBucket = usernameBuckets.get(user);
+        TokenBucket ipBucket = ipBuckets.computeIfAbsent(ip,
+                key -> new TokenBucket(ipCapacity, ipRefillPerMinute, now));
+        TokenBucket userIpBucket = userIpBuckets.computeIfAbsent(user + "|" + ip,
+                key -> new TokenBucket(userIpCapacity, userIpRefillPerMinute, now));
+
+        boolean admitted = (usernameBucket == null || usernameBucket.hasToken(now))
+                && ipBucket.hasToken(now) && userIpBucket.hasToken(now) && ipBucket.tryConsume(now);
+        if (admitted && !userIpBucket.tryConsume(now)) {
+            // Otro intento simultáneo ha gastado el último token del par: se devuelve el de la IP
+            ipBucket.refund();
+            admitted = false;
+        }
+        if (!admitted) {
+            rejectedByRate.incrementAndGet();
+            logger.warn("Intento de login rechazado por límite de frecuencia: usuario {}, IP {}", username, ip);
+        }
+        return admitted;
+    }
+
+    /**
+     * Registra una contraseña incorrecta y la descuenta del cubo del usuario, común a todas
+     * las IPs.
+     *
+     * @param username nombre de usuario del intento fallido.
+     */
+    public void recordFailure(String username) {
+        long now = System.nanoTime();
+        failedAttempts.incrementAndGet();
+        usernameBuckets.computeIfAbsent(username.toLowerCase(),
+                key -> new TokenBucket(usernameCapacity, usernameRefillPerMinute, now)).tryConsume(now);
+    }
+
+    /**
+     * Ejecuta la autenticación en el pool dedicado y espera su resultado.
+     *
+     * @param authentication tarea que comprueba las credenciales.
+     * @return el resultado de la autenticación.
+     * @throws RejectedExecutionException si la cola del pool está llena o se agota la espera.
+     */
+    public <T> T authenticate(Supplier<T> authentication) {
+        Future<T> future;
+        try {
+            future = passwordHashingExecutor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return authentication.get();
+                } finally {
+                    recordHashLatency(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedByQueue.incrementAndGet();
+            logger.warn("Cola de comprobación de contraseñas llena ({} en espera)", getQueueDepth());
+            throw e;
+        }
+
+        try {
+            return future.get(hashingTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RejectedExecutionException("Tiempo de espera agotado en la comprobación de la contraseña", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Elimina los cubos que ya están llenos, es decir, los de usuarios e IPs sin intentos
+     * recientes, para que los mapas no crezcan sin límite.
+     */
+    @Scheduled(fixedDelayString = "${auth.rate.cleanup.ms:300000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        usernameBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        userIpBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        ipBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    public long getHashCount() {
+        return hashCount.get();
+    }
+
+    /**
+     * Latencia media de la comprobación de contraseñas en milisegundos.
+     */
+    public double getHashAverageMillis() {
+        long count = hashCount.get();
+        return count == 0 ? 0 : hashTotalNanos.get() / (double) count / 1_000_000;
+    }
+
+    public double getHashMaxMillis() {
+        return hashMaxNanos.get() / 1_000_000d;
+    }
+
+    public int getQueueDepth() {
+        return passwordHashingExecutor.getQueue().size();
+    }
+
+    public int getActiveHashes() {
+        return passwordHashingExecutor.getActiveCount();
+    }
+
+    public long getRejectedByRate() {
+        return rejectedByRate.get();
+    }
+
+    public long getRejectedByQueue() {
+        return rejectedByQueue.get();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.get();
+    }
+
+    public int getQueueRemainingCapacity() {
+        return passwordHashingExecutor.getQueue().remainingCapacity();
+    }
+
+    private void recordHashLatency(long nanos) {
+        hashCount.incrementAndGet();
+        hashTotalNanos.addAndGet(nanos);
+        hashMaxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Cubo de tokens sin bloqueos. El estado (tokens disponibles y último relleno) es
+     * inmutable y se sustituye con compareAndSet.
+     */
+    private static final class TokenBucket {
+
+        private record State(double tokens, long lastRefillNanos) {
+        }
+
+        private final int capacity;
+        private final double tokensPerNano;
+        private final AtomicReference<State> state;
+
+        TokenBucket(int capacity, int refillPerMinute, long now) {
+            this.capacity = capacity;
+            this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.state = new AtomicReference<>(new State(capacity, now));
+        }
+
+        boolean tryConsume(long now) {
+            while (true) {
+                State current = state.get();
+                double tokens = refill(current, now);
+                if (tokens < 1) {
+                    return false;
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                    return true;
+                }
+            }
+        }
+
+        boolean hasToken(long now) {
+            return refill(state.get(), now) >= 1;
+        }
+
+        void refund() {
+            while (true) {
+                State current = state.get();
+                State refunded = new State(Math.min(capacity, current.tokens() + 1), current.lastRefillNanos());
+                if (state.compareAndSet(current, refunded)) {
+                    return;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return refill(state.get(), now) >= capacity;
+        }
+
+        private double refill(State current, long now) {
+            long elapsed = Math.max(0, now - current.lastRefillNanos());
+            return Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.NotificationCreateDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.SearchText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de detección de precios mínimos.
+ *
+ * Mantiene en memoria el precio más bajo observado para cada producto, identificado por su
+ * nombre normalizado (cada compra de un mismo artículo puede dar lugar a un producto nuevo).
+ * Cada observación cuesta O(1): se compara con el mínimo actual y, si lo mejora, se guarda
+ * y se emite una notificación "Precio más bajo". El histórico solo se lee una vez al arrancar.
+ */
+@Service
+public class LowestPriceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowestPriceService.class);
+
+    private static final String SUBJECT = "Precio más bajo";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    // Nombre normalizado del producto -> precio mínimo observado
+    private final Map<String, BigDecimal> minimums = new ConcurrentHashMap<>();
+
+    private final AtomicLong notificationsEmitted = new AtomicLong();
+
+    // Hasta cargar los mínimos existentes no se notifica, para no anunciar falsos mínimos
+    private volatile boolean ready;
+
+    /**
+     * Carga los mínimos a partir de los productos existentes al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT name, price FROM products", (RowCallbackHandler) rs ->
+                update(rs.getString("name"), rs.getBigDecimal("price")));
+        ready = true;
+        logger.info("Precios mínimos cargados: {} productos en {} ms.", minimums.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Registra el precio observado de un producto. Si hay una transacción activa, la
+     * observación se aplica cuando se confirma, para no registrar precios que se deshacen.
+     *
+     * @param name nombre del producto.
+     * @param price precio observado.
+     */
+    public void observe(String name, BigDecimal price) {
+        if (name == null || price == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(name, price);
+                }
+            });
+        } else {
+            record(name, price);
+        }
+    }
+
+    public int getTrackedProducts() {
+        return minimums.size();
+    }
+
+    public long getNotificationsEmitted() {
+        return notificationsEmitted.get();
+    }
+
+    private void record(String name, BigDecimal price) {
+        BigDecimal previous = update(name, price);
+        if (ready && previous != null && price.compareTo(previous) < 0) {
+            notificationsEmitted.incrementAndGet();
+            String message = "Nuevo precio más bajo para el producto " + name + ": " + price + " € (antes " + previous + " €)";
+            notificationService.saveNotification(new NotificationCreateDTO(SUBJECT, message, false))
+                    .doOnError(error -> logger.error("Error al guardar la notificación de precio más bajo", error))
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Actualiza el mínimo de un producto de forma atómica.
+     *
+     * @return el mínimo anterior si el nuevo precio lo mejora, o null en caso contrario.
+     */
+    private BigDecimal update(String name, BigDecimal price) {
+        String key = SearchText.normalize(name);
+        BigDecimal[] previous = new BigDecimal[1];
+        minimums.compute(key, (k, current) -> {
+            if (current == null || price.compareTo(current) < 0) {
+                previous[0] = current;
+                return price;
+            }
+            return current;
+        });
+        return previous[0];
+    }
+}
@@ -0,0 +1,100 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.ProductDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catálogo de productos (id, nombre y precio) cacheado en memoria para rellenar los
+ * desplegables de los formularios sin cargar todas las entidades en cada petición.
+ *
+ * El catálogo es una instantánea inmutable con un número de versión. Cualquier escritura
+ * de productos incrementa la versión y la siguiente lectura vuelve a cargar la instantánea.
+ */
+@Service
+public class ProductCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogService.class);
+
+    private static final String CATALOG_SQL = "SELECT id, name, price FROM products ORDER BY name, id";
+
+    // Distingue las versiones de distintas ejecuciones de la aplicación en el ETag
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Instantánea inmutable del catálogo.
+     *
+     * @param version versión del catálogo con la que se cargó.
+     * @param etag valor del ETag para la respuesta JSON.
+     * @param products productos ordenados por nombre.
+     */
+    public record Snapshot(long version, String etag, List<ProductDTO> products) {
+    }
+
+    /**
+     * Devuelve la instantánea actual del catálogo, cargándola si alguna escritura la ha invalidado.
+     *
+     * @return instantánea del catálogo.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        long currentVersion = version.get();
+        if (current != null && current.version() == currentVersion) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            currentVersion = version.get();
+            if (current == null || current.version() != currentVersion) {
+                // La versión se lee antes de la consulta: si llega una escritura mientras se
+                // carga, la instantánea queda obsoleta y se vuelve a cargar en la siguiente lectura
+                List<ProductDTO> products = List.copyOf(jdbcTemplate.query(CATALOG_SQL, (rs, rowNum) ->
+                        new ProductDTO(rs.getLong("id"), rs.getString("name"), rs.getBigDecimal("price"))));
+                current = new Snapshot(currentVersion, "\"" + epoch + "-" + currentVersion + "\"", products);
+                snapshot = current;
+                logger.debug("Catálogo de productos cargado: versión {}, {} productos.", currentVersion, products.size());
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Devuelve los productos del catálogo.
+     *
+     * @return lista inmutable de productos.
+     */
+    public List<ProductDTO> getProducts() {
+        return getSnapshot().products();
+    }
+
+    /**
+     * Invalida el catálogo tras una escritura de productos. Si hay una transacción activa,
+     * se invalida de nuevo al confirmarla para que no quede cacheada una lectura anterior al commit.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.ProductDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.SearchText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de trigramas en memoria sobre los nombres de los productos.
+ *
+ * Sustituye a la búsqueda LIKE '%texto%', que no puede usar índices, para la búsqueda
+ * mientras se escribe. La búsqueda no distingue mayúsculas ni acentos y devuelve los
+ * productos ordenados por similitud. El índice se construye la primera vez que se usa y
+ * se mantiene al crear, modificar o eliminar productos.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Productos indexados por id
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // Lista invertida: trigrama -> ids de los productos que lo contienen
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    private volatile boolean built;
+    private volatile long lastRebuildMillis;
+
+    private record Entry(Long id, String name, BigDecimal price, String normalized, Set<String> trigrams) {
+    }
+
+    /**
+     * Devuelve los productos cuyo nombre más se parece a la consulta.
+     *
+     * @param query texto escrito por el usuario.
+     * @param limit número máximo de resultados.
+     * @return productos ordenados por relevancia.
+     */
+    public List<ProductDTO> suggest(String query, int limit) {
+        ensureBuilt();
+        String normalized = SearchText.normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Set<String> queryTrigrams = SearchText.trigrams(normalized, false);
+
+        lock.readLock().lock();
+        try {
+            // Cuenta los trigramas compartidos por cada producto candidato
+            Map<Long, Integer> matches = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids != null) {
+                    for (Long id : ids) {
+                        matches.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+
+            List<Scored> scored = new ArrayList<>(matches.size());
+            for (Map.Entry<Long, Integer> match : matches.entrySet()) {
+                Entry entry = entries.get(match.getKey());
+                double score = match.getValue() / (double) (queryTrigrams.size() + entry.trigrams().size() - match.getValue());
+                // Se priorizan los nombres que contienen la consulta literalmente
+                if (entry.normalized().startsWith(normalized)) {
+                    score += 1;
+                } else if (entry.normalized().contains(normalized)) {
+                    score += 0.5;
+                }
+                scored.add(new Scored(entry, score));
+            }
+
+            return scored.stream()
+                    .sorted(Comparator.comparingDouble(Scored::score).reversed()
+                            .thenComparing(s -> s.entry().name().length()))
+                    .limit(limit)
+                    .map(s -> new ProductDTO(s.entry().id(), s.entry().name(), s.entry().price()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Añade o actualiza un producto en el índice.
+     *
+     * El estado del índice se comprueba con el bloqueo de escritura tomado: si hay una
+     * construcción en curso, el cambio espera a que termine y se aplica sobre ella, ya que su
+     * lectura de la tabla puede no incluirlo. Si el índice aún no se ha construido, la
+     * construcción inicial leerá el producto de la base de datos.
+     *
+     * @param id identificador del producto.
+     * @param name nombre del producto.
+     * @param price precio del producto.
+     */
+    public void put(Long id, String name, BigDecimal price) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                return; // Se indexará en la construcción inicial
+            }
+            removeInternal(id);
+            addInternal(id, name, price);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina un producto del índice.
+     *
+     * @param id identificador del producto.
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                removeInternal(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstruye el índice completo a partir de la tabla de productos.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            jdbcTemplate.query("SELECT id, name, price FROM products",
+                    (RowCallbackHandler) rs -> addInternal(rs.getLong("id"), rs.getString("name"), rs.getBigDecimal("price")));
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastRebuildMillis = System.currentTimeMillis() - start;
+        logger.info("Índice de productos construido: {} productos, {} trigramas en {} ms.",
+                entries.size(), postings.size(), lastRebuildMillis);
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTrigramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            synchronized (this) {
+                if (!built) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private void addInternal(Long id, String name, BigDecimal price) {
+        String normalized = SearchText.normalize(name);
+        Set<String> trigrams = SearchText.trigrams(normalized, true);
+        entries.put(id, new Entry(id, name, price, normalized, trigrams));
+        for (String trigram : trigrams) {
+            postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void removeInternal(Long id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            for (String trigram : previous.trigrams()) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    private record Scored(Entry entry, double score) {
+    }
+}
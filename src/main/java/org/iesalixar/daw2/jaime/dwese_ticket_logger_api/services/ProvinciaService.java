@@ -0,0 +1,97 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Provincia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio de consulta del listado paginado de provincias.
+ *
+ * El listado se lee con JDBC en una sola consulta que devuelve la página y, mediante
+ * COUNT(*) OVER (), el total de provincias que cumplen el filtro. La ordenación solo admite
+ * las claves conocidas, de modo que el texto recibido nunca forma parte de la consulta.
+ */
+@Service
+public class ProvinciaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProvinciaService.class);
+
+    // Ordenaciones admitidas en el listado. Cualquier otro valor usa la ordenación por defecto,
+    // por lo que el texto recibido nunca llega a la consulta.
+    private static final String DEFAULT_SORT = "idAsc";
+    private static final Map<String, String> SORTS = Map.of(
+            "idAsc", "id ASC",
+            "idDesc", "id DESC",
+            "nameAsc", "name ASC, id ASC",
+            "nameDesc", "name DESC, id DESC",
+            "codeAsc", "code ASC",
+            "codeDesc", "code DESC");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Obtiene una página de provincias, opcionalmente filtradas por nombre.
+     *
+     * La página y el número total de provincias se obtienen en una única consulta con
+     * COUNT(*) OVER (), en lugar de la consulta de la página más una consulta COUNT aparte.
+     * Si se pide una página posterior a la última, la consulta no devuelve filas y el total se
+     * obtiene con un COUNT aparte sobre el mismo filtro.
+     *
+     * @param search texto que debe contener el nombre, o null para no filtrar.
+     * @param page número de página, empezando en 0.
+     * @param size tamaño de la página.
+     * @param sort clave de ordenación (nameAsc, codeDesc...), o null.
+     * @return la página de provincias con el total de elementos.
+     */
+    public Page<Provincia> getProvincias(String search, int page, int size, String sort) {
+        String orderBy = SORTS.get(sort == null ? DEFAULT_SORT : sort);
+        if (orderBy == null) {
+            logger.warn("Ordenación no admitida '{}', se usa la ordenación por defecto.", sort);
+            orderBy = SORTS.get(DEFAULT_SORT);
+        }
+        int pageNumber = Math.max(page, 0);
+        List<Object> filterParams = new ArrayList<>();
+        String where = "";
+        if (search != null && !search.isBlank()) {
+            where = " WHERE LOWER(name) LIKE LOWER(?) ESCAPE '\\\\'";
+            filterParams.add("%" + escapeLike(search.trim()) + "%");
+        }
+        List<Object> params = new ArrayList<>(filterParams);
+        params.add(size);
+        params.add((long) pageNumber * size);
+        String sql = "SELECT id, code, name, COUNT(*) OVER () AS total_rows FROM provincias" + where
+                + " ORDER BY " + orderBy + " LIMIT ? OFFSET ?";
+
+        List<Provincia> content = new ArrayList<>();
+        long[] total = {0};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            Provincia provincia = new Provincia(rs.getString("code"), rs.getString("name"));
+            provincia.setId(rs.getLong("id"));
+            content.add(provincia);
+            total[0] = rs.getLong("total_rows");
+        }, params.toArray());
+        if (content.isEmpty() && pageNumber > 0) {
+            // Sin filas no hay COUNT(*) OVER () del que leer el total
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM provincias" + where,
+                    Long.class, filterParams.toArray());
+            total[0] = count == null ? 0 : count;
+        }
+        return new PageImpl<>(content, PageRequest.of(pageNumber, size), total[0]);
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
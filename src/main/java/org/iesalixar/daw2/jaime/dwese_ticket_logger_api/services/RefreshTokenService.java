@@ -0,0 +1,179 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.RefreshToken;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.User;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.RefreshTokenRepository;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Servicio que emite y rota los tokens de refresco.
+ *
+ * Permite renovar el token de acceso sin volver a comprobar la contraseña con BCrypt.
+ * Cada token solo puede usarse una vez: al refrescar se revoca y se emite otro de la
+ * misma familia. Si llega un token ya usado se asume que ha sido robado y se revoca
+ * toda la familia. Los tokens emitidos antes del último cambio de contraseña del usuario
+ * dejan de ser válidos.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Días de validez de un token de refresco
+    @Value("${jwt.refresh.expiration.days:30}")
+    private long refreshExpirationDays;
+
+    /**
+     * Resultado de una rotación: el usuario propietario y el nuevo token en claro.
+     */
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    /**
+     * Emite un token de refresco para un usuario que acaba de iniciar sesión,
+     * abriendo una nueva familia.
+     *
+     * @param userId identificador del usuario.
+     * @return el valor del token en claro, que solo se devuelve al cliente.
+     */
+    @Transactional
+    public String issue(Long userId) {
+        User user = userRepository.getReferenceById(userId);
+        return createToken(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Rota un token de refresco: lo marca como usado y emite uno nuevo de la misma familia.
+     *
+     * @param rawToken valor del token recibido del cliente.
+     * @return el usuario y el nuevo token de refresco.
+     * @throws IllegalArgumentException si el token no existe, ha caducado, ha sido reutilizado
+     * o el usuario está deshabilitado.
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new IllegalArgumentException("Token de refresco no válido."));
+
+        if (current.isRevoked()) {
+            // Un token ya rotado se está reutilizando: se revoca toda la familia
+            throw reuseDetected(current);
+        }
+        if (current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Token de refresco expirado.");
+        }
+
+        User user = current.getUser();
+        if (!user.isEnabled()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+            throw new IllegalArgumentException("Usuario deshabilitado.");
+        }
+        if (user.getLastPasswordChangeDate() != null
+                && current.getCreatedDate().isBefore(user.getLastPasswordChangeDate())) {
+            // La familia se abrió con la contraseña anterior
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+            throw new IllegalArgumentException("Token de refresco no válido.");
+        }
+
+        // Marca condicional: si otra petición ha rotado el mismo token a la vez, esta no lo
+        // consigue y se trata como una reutilización
+        if (refreshTokenRepository.markUsed(current.getId()) == 0) {
+            throw reuseDetected(current);
+        }
+        return new Rotation(user, createToken(user, current.getFamilyId()));
+    }
+
+    /**
+     * Revoca la familia del token de refresco indicado, por ejemplo al cerrar la sesión.
+     *
+     * @param rawToken valor del token recibido del cliente.
+     * @return true si el token existía.
+     */
+    @Transactional
+    public boolean revokeFamily(String rawToken) {
+        return refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .map(token -> {
+                    refreshTokenRepository.revokeFamily(token.getFamilyId());
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Revoca todos los tokens de refresco de un usuario. Se usa al cerrar la sesión sin
+     * indicar el token de refresco.
+     *
+     * @param userId identificador del usuario.
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(userId);
+        logger.info("Revocados {} tokens de refresco del usuario {}", revoked, userId);
+    }
+
+    private IllegalArgumentException reuseDetected(RefreshToken current) {
+        int revoked = refreshTokenRepository.revokeFamily(current.getFamilyId());
+        logger.warn("Reutilización del token de refresco detectada en la familia {}. Tokens revocados: {}",
+                current.getFamilyId(), revoked);
+        return new IllegalArgumentException("Token de refresco no válido.");
+    }
+
+    /**
+     * Elimina periódicamente los tokens de refresco caducados.
+     */
+    @Scheduled(cron = "${jwt.refresh.cleanup.cron:0 0 3 * * *}")
+    @Transactional
+    public void deleteExpiredTokens() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        logger.info("Eliminados {} tokens de refresco caducados.", deleted);
+    }
+
+    private String createToken(User user, String familyId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setUser(user);
+        refreshToken.setRevoked(false);
+        refreshToken.setCreatedDate(LocalDateTime.now());
+        refreshToken.setExpiresAt(LocalDateTime.now().plusDays(refreshExpirationDays));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    private String hash(String rawToken) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
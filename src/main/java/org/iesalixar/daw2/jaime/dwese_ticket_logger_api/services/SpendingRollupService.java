@@ -0,0 +1,162 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.SpendingRollupDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Servicio de los agregados de gasto por día, semana y mes.
+ *
+ * Cada escritura de tickets aplica su variación (número de tickets, bruto y neto) a las
+ * filas de los tres periodos afectados dentro de la misma transacción, de modo que los
+ * informes solo leen la tabla spending_rollups y su coste no depende del histórico.
+ */
+@Service
+public class SpendingRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpendingRollupService.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO spending_rollups (granularity, period_start, ticket_count, gross, discount, net) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE ticket_count = ticket_count + VALUES(ticket_count), " +
+            " gross = gross + VALUES(gross), discount = discount + VALUES(discount), net = net + VALUES(net)";
+
+    // Inicio de cada periodo en SQL; la semana empieza en lunes, como en Granularity.periodStart
+    private static final Map<Granularity, String> PERIOD_SQL = Map.of(
+            Granularity.DAY, "DATE(t.date)",
+            Granularity.WEEK, "DATE_SUB(DATE(t.date), INTERVAL WEEKDAY(t.date) DAY)",
+            Granularity.MONTH, "DATE_SUB(DATE(t.date), INTERVAL DAYOFMONTH(t.date) - 1 DAY)");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Periodos de agregación.
+     */
+    public enum Granularity {
+        DAY, WEEK, MONTH;
+
+        LocalDate periodStart(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(DayOfWeek.MONDAY);
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+    }
+
+    /**
+     * Variación de un ticket sobre los agregados.
+     *
+     * @param date fecha del ticket.
+     * @param ticketCount variación del número de tickets (1 al crear, -1 al borrar, 0 al modificar).
+     * @param gross variación del importe bruto (subtotal).
+     * @param net variación del importe neto (total).
+     */
+    public record Delta(java.util.Date date, int ticketCount, BigDecimal gross, BigDecimal net) {
+    }
+
+    /**
+     * Aplica la variación de un ticket. Debe llamarse dentro de la transacción que modifica el ticket.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(java.util.Date date, int ticketCount, BigDecimal gross, BigDecimal net) {
+        apply(List.of(new Delta(date, ticketCount, gross, net)));
+    }
+
+    /**
+     * Aplica las variaciones de varios tickets. Se agrupan por periodo en memoria y se envían
+     * en un lote JDBC ordenado por clave, para que las transacciones concurrentes bloqueen
+     * las filas siempre en el mismo orden.
+     *
+     * @param deltas variaciones a aplicar.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Collection<Delta> deltas) {
+        Map<String, Object[]> rows = new TreeMap<>();
+        for (Delta delta : deltas) {
+            if (delta.date() == null) {
+                continue;
+            }
+            LocalDate day = delta.date().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            for (Granularity granularity : Granularity.values()) {
+                LocalDate start = granularity.periodStart(day);
+                Object[] row = rows.computeIfAbsent(granularity + "|" + start, key -> new Object[]{
+                        granularity.name(), Date.valueOf(start), 0L, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+                row[2] = (Long) row[2] + delta.ticketCount();
+                row[3] = ((BigDecimal) row[3]).add(delta.gross());
+                row[4] = ((BigDecimal) row[4]).add(delta.gross().subtract(delta.net()));
+                row[5] = ((BigDecimal) row[5]).add(delta.net());
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, new ArrayList<>(rows.values()));
+        }
+    }
+
+    /**
+     * Obtiene los agregados de un tipo de periodo entre dos fechas.
+     *
+     * @param granularity tipo de periodo.
+     * @param from primera fecha (incluida), o null.
+     * @param to última fecha (excluida), o null.
+     * @return agregados ordenados por fecha de inicio del periodo.
+     */
+    @Transactional(readOnly = true)
+    public List<SpendingRollupDTO> getRollups(Granularity granularity, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        params.add(granularity.name());
+        StringBuilder sql = new StringBuilder(
+                "SELECT period_start, ticket_count, gross, discount, net FROM spending_rollups WHERE granularity = ?");
+        if (from != null) {
+            sql.append(" AND period_start >= ?");
+            params.add(Date.valueOf(granularity.periodStart(from)));
+        }
+        if (to != null) {
+            sql.append(" AND period_start < ?");
+            params.add(Date.valueOf(to));
+        }
+        sql.append(" ORDER BY period_start");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new SpendingRollupDTO(
+                rs.getDate("period_start").toLocalDate(), rs.getLong("ticket_count"),
+                rs.getBigDecimal("gross"), rs.getBigDecimal("discount"), rs.getBigDecimal("net")), params.toArray());
+    }
+
+    /**
+     * Reconstruye todos los agregados a partir de los totales persistidos de los tickets.
+     *
+     * @return número de filas de agregados generadas.
+     */
+    @Transactional
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.update("DELETE FROM spending_rollups");
+        int rows = 0;
+        for (Granularity granularity : Granularity.values()) {
+            String period = PERIOD_SQL.get(granularity);
+            rows += jdbcTemplate.update(
+                    "INSERT INTO spending_rollups (granularity, period_start, ticket_count, gross, discount, net) " +
+                    "SELECT ?, " + period + ", COUNT(*), SUM(t.subtotal), SUM(t.subtotal - t.total), SUM(t.total) " +
+                    "FROM tickets t GROUP BY " + period, granularity.name());
+        }
+        logger.info("Agregados de gasto reconstruidos: {} filas en {} ms.", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+}
@@ -0,0 +1,98 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contador de versión por tabla para los datos de referencia (regiones, provincias,
+ * ubicaciones y supermercados).
+ *
+ * Cada escritura incrementa la versión de su tabla. La versión genera un ETag fuerte y la
+ * fecha de la última modificación genera la cabecera Last-Modified, de modo que las
+ * peticiones condicionales se resuelven sin consultar la base de datos.
+ */
+@Service
+public class TableVersionService {
+
+    public static final String REGIONS = "regions";
+    public static final String PROVINCIAS = "provincias";
+    public static final String LOCATIONS = "locations";
+    public static final String SUPERMARKETS = "supermarkets";
+
+    // Distingue las versiones de distintas ejecuciones de la aplicación en el ETag
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    private final long startedAt = truncateToSeconds(System.currentTimeMillis());
+
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Versión de una tabla.
+     *
+     * @param counter número de escrituras desde el arranque.
+     * @param lastModified fecha de la última escritura en milisegundos, truncada a segundos.
+     * @param etag ETag fuerte de la versión.
+     */
+    public record Version(long counter, long lastModified, String etag) {
+    }
+
+    /**
+     * Devuelve la versión actual de una tabla.
+     *
+     * @param table nombre de la tabla.
+     * @return la versión actual.
+     */
+    public Version current(String table) {
+        return versions.computeIfAbsent(table, t -> newVersion(t, 0, startedAt));
+    }
+
+    /**
+     * Devuelve un ETag que combina las versiones de varias tablas.
+     *
+     * @param tables nombres de las tablas.
+     * @return ETag fuerte.
+     */
+    public String combinedEtag(String... tables) {
+        StringBuilder etag = new StringBuilder("\"").append(epoch);
+        for (String table : tables) {
+            etag.append('-').append(current(table).counter());
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Incrementa la versión de una tabla tras una escritura. Si hay una transacción activa,
+     * se incrementa de nuevo al confirmarla para que no quede cacheada una lectura anterior al commit.
+     *
+     * @param table nombre de la tabla.
+     */
+    public void bump(String table) {
+        increment(table);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(table);
+                }
+            });
+        }
+    }
+
+    private void increment(String table) {
+        long now = truncateToSeconds(System.currentTimeMillis());
+        versions.compute(table, (t, current) ->
+                newVersion(t, current == null ? 1 : current.counter() + 1, now));
+    }
+
+    private Version newVersion(String table, long counter, long lastModified) {
+        return new Version(counter, lastModified, "\"" + table + "-" + epoch + "-" + counter + "\"");
+    }
+
+    private static long truncateToSeconds(long millis) {
+        return millis - Math.floorMod(millis, 1000L);
+    }
+}
@@ -0,0 +1,406 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketBatchItemDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketBatchResultDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.TicketFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Servicio de carga masiva de tickets.
+ *
+ * Los tickets usan claves IDENTITY, lo que impide a Hibernate agrupar las inserciones.
+ * Este servicio valida los tickets en memoria y los inserta directamente con JDBC en lotes:
+ * primero los productos nuevos, después los tickets y por último las filas de product_ticket.
+ *
+ * Si otra petición guarda a la vez un ticket con la misma huella, el índice único rechaza el
+ * lote y la carga se repite en una nueva transacción; en el reintento ese ticket ya existe y
+ * se informa como DUPLICATE.
+ */
+@Service
+public class TicketBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketBatchService.class);
+
+    private static final String STATUS_CREATED = "CREATED";
+    private static final String STATUS_ERROR = "ERROR";
+    private static final String STATUS_DUPLICATE = "DUPLICATE";
+
+    // Límites de la entidad Product: nombre de 2 a 100 caracteres y precio DECIMAL(10, 2)
+    private static final int PRODUCT_NAME_MIN = 2;
+    private static final int PRODUCT_NAME_MAX = 100;
+    private static final int PRICE_SCALE = 2;
+    private static final int PRICE_INTEGER_DIGITS = 8;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    @Autowired
+    private LowestPriceService lowestPriceService;
+
+    @Autowired
+    private TicketFingerprintService ticketFingerprintService;
+
+    // Número máximo de tickets admitidos en una petición
+    @Value("${tickets.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    // Número de filas enviadas en cada executeBatch
+    @Value("${tickets.batch.jdbc-size:500}")
+    private int jdbcBatchSize;
+
+    // Número máximo de intentos de la carga cuando otra petición guarda a la vez un ticket con la misma huella
+    @Value("${tickets.batch.max-attempts:3}")
+    private int maxAttempts;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TicketBatchService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Inserta un conjunto de tickets con sus productos.
+     * Los tickets con datos no válidos o ya cargados (misma huella) se omiten y se informan en el resultado;
+     * el resto se insertan en la misma transacción.
+     *
+     * @param items tickets a insertar.
+     * @return el resultado de cada ticket, en el mismo orden que la entrada.
+     * @throws IllegalArgumentException si el lote está vacío o supera el tamaño máximo.
+     */
+    public List<TicketBatchResultDTO> insertTickets(List<TicketBatchItemDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("El lote de tickets está vacío.");
+        }
+        if (items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("El lote supera el máximo de " + maxBatchSize + " tickets.");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> insertValidTickets(items));
+            } catch (DuplicateKeyException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.info("Conflicto de huellas en la carga masiva; reintento {} de {}", attempt + 1, maxAttempts);
+            }
+        }
+    }
+
+    private List<TicketBatchResultDTO> insertValidTickets(List<TicketBatchItemDTO> items) {
+        long start = System.nanoTime();
+        TicketBatchResultDTO[] results = new TicketBatchResultDTO[items.size()];
+        Map<Long, BigDecimal> existingPrices = new HashMap<>();
+        Map<Long, String> existingNames = new HashMap<>();
+        loadExistingProducts(items, existingPrices, existingNames);
+
+        // 1. Validación en memoria y cálculo de la huella de cada ticket
+        List<PendingTicket> valid = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            String error = validate(items.get(i), existingPrices);
+            if (error != null) {
+                results[i] = new TicketBatchResultDTO(i, null, STATUS_ERROR, error);
+                continue;
+            }
+            PendingTicket ticket = new PendingTicket(i, items.get(i));
+            ticket.fingerprint = fingerprint(items.get(i), existingPrices, existingNames);
+            valid.add(ticket);
+        }
+
+        // 2. Duplicados: tickets ya cargados (una consulta sobre el índice único de la huella)
+        // y tickets repetidos dentro del propio lote
+        Map<String, Long> storedFingerprints = ticketFingerprintService.findExisting(
+                valid.stream().map(ticket -> ticket.fingerprint).toList());
+        Map<String, Integer> seenInBatch = new HashMap<>();
+        List<PendingTicket> pending = new ArrayList<>();
+        List<TicketBatchItemDTO.ProductLine> newProducts = new ArrayList<>();
+        for (PendingTicket ticket : valid) {
+            // Los tickets sin productos no tienen huella y no se comparan
+            Long existingId = ticket.fingerprint == null ? null : storedFingerprints.get(ticket.fingerprint);
+            Integer firstIndex = ticket.fingerprint == null ? null : seenInBatch.putIfAbsent(ticket.fingerprint, ticket.index);
+            if (existingId != null) {
+                results[ticket.index] = new TicketBatchResultDTO(ticket.index, existingId, STATUS_DUPLICATE,
+                        "El ticket ya existe.");
+                continue;
+            }
+            if (firstIndex != null) {
+                results[ticket.index] = new TicketBatchResultDTO(ticket.index, null, STATUS_DUPLICATE,
+                        "El ticket está repetido en la posición " + firstIndex + " del lote.");
+                continue;
+            }
+            for (TicketBatchItemDTO.ProductLine line : ticket.item.getProducts()) {
+                if (line.getProductId() == null) {
+                    newProducts.add(line);
+                }
+            }
+            pending.add(ticket);
+        }
+
+        // 3. Productos nuevos
+        List<Long> newProductIds = insertRows(
+                "INSERT INTO products (name, price) VALUES (?, ?)", newProducts,
+                (ps, line) -> {
+                    ps.setString(1, line.getName());
+                    ps.setBigDecimal(2, line.getPrice());
+                });
+        // Los ids generados no se guardan en las líneas de entrada, para que un reintento parta de los mismos datos
+        Map<TicketBatchItemDTO.ProductLine, Long> generatedIds = new IdentityHashMap<>();
+        for (int i = 0; i < newProducts.size(); i++) {
+            generatedIds.put(newProducts.get(i), newProductIds.get(i));
+            existingPrices.put(newProductIds.get(i), newProducts.get(i).getPrice());
+            lowestPriceService.observe(newProducts.get(i).getName(), newProducts.get(i).getPrice());
+        }
+        if (!newProducts.isEmpty()) {
+            productCatalogService.invalidate();
+            indexAfterCommit(newProducts, newProductIds);
+        }
+
+        // 4. Tickets, con los totales y la huella ya calculados
+        for (PendingTicket ticket : pending) {
+            ticket.resolveProducts(existingPrices, generatedIds);
+        }
+        List<Long> ticketIds = insertRows(
+                "INSERT INTO tickets (date, discount, subtotal, total, fingerprint) VALUES (?, ?, ?, ?, ?)", pending,
+                (ps, ticket) -> {
+                    ps.setTimestamp(1, new Timestamp(ticket.item.getDate().getTime()));
+                    ps.setBigDecimal(2, ticket.item.getDiscount());
+                    ps.setBigDecimal(3, ticket.subtotal);
+                    ps.setBigDecimal(4, Ticket.applyDiscount(ticket.subtotal, ticket.item.getDiscount()));
+                    ps.setString(5, ticket.fingerprint);
+                });
+
+        // 5. Relaciones product_ticket
+        List<Object[]> links = new ArrayList<>();
+        List<SpendingRollupService.Delta> rollupDeltas = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            PendingTicket ticket = pending.get(i);
+            for (Long productId : ticket.productIds) {
+                links.add(new Object[]{productId, ticketIds.get(i)});
+            }
+            rollupDeltas.add(new SpendingRollupService.Delta(ticket.item.getDate(), 1, ticket.subtotal,
+                    Ticket.applyDiscount(ticket.subtotal, ticket.item.getDiscount())));
+            results[ticket.index] = new TicketBatchResultDTO(ticket.index, ticketIds.get(i), STATUS_CREATED, null);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product_ticket (product_id, ticket_id) VALUES (?, ?)", links);
+
+        // 6. Agregados de gasto, agrupados por periodo
+        spendingRollupService.apply(rollupDeltas);
+
+        logger.info("Carga masiva: {} tickets insertados, {} duplicados, {} rechazados en {} ms.", pending.size(),
+                valid.size() - pending.size(), items.size() - valid.size(), (System.nanoTime() - start) / 1_000_000);
+        return List.of(results);
+    }
+
+    /**
+     * Valida un ticket de la carga.
+     *
+     * @return el mensaje de error, o null si el ticket es válido.
+     */
+    private String validate(TicketBatchItemDTO item, Map<Long, BigDecimal> existingPrices) {
+        if (item == null || item.getDate() == null) {
+            return "La fecha del ticket es obligatoria.";
+        }
+        if (item.getDiscount() == null || item.getDiscount().signum() < 0
+                || item.getDiscount().compareTo(BigDecimal.valueOf(100)) > 0) {
+            return "El descuento debe estar entre 0 y 100.";
+        }
+        if (item.getProducts() == null) {
+            item.setProducts(List.of());
+        }
+        if (item.getDiscount().scale() > PRICE_SCALE) {
+            return "El descuento admite como máximo " + PRICE_SCALE + " decimales.";
+        }
+        for (TicketBatchItemDTO.ProductLine line : item.getProducts()) {
+            if (line == null) {
+                return "Las líneas de producto no pueden ser nulas.";
+            }
+            if (line.getProductId() != null) {
+                if (!existingPrices.containsKey(line.getProductId())) {
+                    return "El producto con ID " + line.getProductId() + " no existe.";
+                }
+                continue;
+            }
+            if (line.getName() == null || line.getName().isBlank() || line.getPrice() == null
+                    || line.getPrice().signum() < 0) {
+                return "Cada producto nuevo necesita nombre y precio.";
+            }
+            if (line.getName().length() < PRODUCT_NAME_MIN || line.getName().length() > PRODUCT_NAME_MAX) {
+                return "El nombre del producto debe tener entre " + PRODUCT_NAME_MIN + " y "
+                        + PRODUCT_NAME_MAX + " caracteres.";
+            }
+            BigDecimal price = line.getPrice().stripTrailingZeros();
+            if (price.scale() > PRICE_SCALE || price.precision() - price.scale() > PRICE_INTEGER_DIGITS) {
+                return "El precio de " + line.getName() + " no cabe en la columna (máximo "
+                        + PRICE_INTEGER_DIGITS + " enteros y " + PRICE_SCALE + " decimales).";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Añade los productos nuevos al índice de búsqueda cuando se confirma la transacción.
+     * Las inserciones JDBC no pasan por los listeners JPA, y si la carga se deshace el
+     * índice no debe sugerir productos que no existen.
+     */
+    private void indexAfterCommit(List<TicketBatchItemDTO.ProductLine> products, List<Long> ids) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (int i = 0; i < products.size(); i++) {
+                    productSearchIndex.put(ids.get(i), products.get(i).getName(), products.get(i).getPrice());
+                }
+            }
+        });
+    }
+
+    /**
+     * Calcula la huella de un ticket de la carga a partir de los nombres y precios de sus productos.
+     *
+     * @return la huella, o null si el ticket no tiene productos.
+     */
+    private String fingerprint(TicketBatchItemDTO item, Map<Long, BigDecimal> prices, Map<Long, String> names) {
+        List<TicketFingerprint.Line> lines = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (TicketBatchItemDTO.ProductLine line : item.getProducts()) {
+            if (line.getProductId() == null) {
+                lines.add(new TicketFingerprint.Line(line.getName(), line.getPrice()));
+            } else if (seen.add(line.getProductId())) {
+                // Un producto existente solo se asocia una vez al ticket
+                lines.add(new TicketFingerprint.Line(names.get(line.getProductId()), prices.get(line.getProductId())));
+            }
+        }
+        return lines.isEmpty() ? null : TicketFingerprint.compute(item.getDate(), item.getDiscount(), lines);
+    }
+
+    /**
+     * Carga en una sola consulta los precios y nombres de los productos existentes referenciados por la carga.
+     */
+    private void loadExistingProducts(List<TicketBatchItemDTO> items, Map<Long, BigDecimal> prices,
+                                      Map<Long, String> names) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (TicketBatchItemDTO item : items) {
+            if (item != null && item.getProducts() != null) {
+                // Las líneas nulas se rechazan después, en la validación
+                item.getProducts().stream()
+                        .filter(line -> line != null)
+                        .map(TicketBatchItemDTO.ProductLine::getProductId)
+                        .filter(id -> id != null)
+                        .forEach(ids::add);
+            }
+        }
+        if (!ids.isEmpty()) {
+            namedParameterJdbcTemplate.query("SELECT id, name, price FROM products WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", ids),
+                    (RowCallbackHandler) rs -> {
+                        prices.put(rs.getLong("id"), rs.getBigDecimal("price"));
+                        names.put(rs.getLong("id"), rs.getString("name"));
+                    });
+        }
+    }
+
+    /**
+     * Inserta filas en lotes JDBC y devuelve las claves generadas en el mismo orden.
+     */
+    private <T> List<Long> insertRows(String sql, List<T> rows, RowBinder<T> binder) {
+        List<Long> keys = new ArrayList<>(rows.size());
+        if (rows.isEmpty()) {
+            return keys;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < rows.size(); from += jdbcBatchSize) {
+                    int to = Math.min(from + jdbcBatchSize, rows.size());
+                    for (T row : rows.subList(from, to)) {
+                        binder.bind(ps, row);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet generated = ps.getGeneratedKeys()) {
+                        while (generated.next()) {
+                            keys.add(generated.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        if (keys.size() != rows.size()) {
+            throw new IllegalStateException("No se han obtenido todas las claves generadas.");
+        }
+        return keys;
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement ps, T row) throws java.sql.SQLException;
+    }
+
+    /**
+     * Ticket validado pendiente de inserción.
+     */
+    private static final class PendingTicket {
+        private final int index;
+        private final TicketBatchItemDTO item;
+        private final Set<Long> productIds = new LinkedHashSet<>();
+        private BigDecimal subtotal = BigDecimal.ZERO;
+        private String fingerprint;
+
+        PendingTicket(int index, TicketBatchItemDTO item) {
+            this.index = index;
+            this.item = item;
+        }
+
+        /**
+         * Resuelve los ids de producto (sin duplicados, ya que forman la clave de product_ticket)
+         * y calcula el subtotal.
+         */
+        void resolveProducts(Map<Long, BigDecimal> prices, Map<TicketBatchItemDTO.ProductLine, Long> generatedIds) {
+            for (TicketBatchItemDTO.ProductLine line : item.getProducts()) {
+                Long productId = line.getProductId() != null ? line.getProductId() : generatedIds.get(line);
+                if (productIds.add(productId)) {
+                    subtotal = subtotal.add(prices.get(productId));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Servicio de exportación de tickets en CSV o NDJSON.
+ *
+ * Los tickets se leen con un cursor JDBC de solo avance y cada fila se escribe en la
+ * respuesta en cuanto se lee, de modo que la memoria usada no depende del número de filas.
+ * Si el cliente cierra la conexión, el error de escritura cancela la consulta en el servidor:
+ * cerrar el cursor sin más no basta, porque el driver de MariaDB lee y descarta el resto del
+ * resultado antes de liberar la conexión.
+ */
+@Service
+public class TicketExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketExportService.class);
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneId.systemDefault());
+
+    /**
+     * Formatos de exportación soportados.
+     */
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    /**
+     * Crea un JdbcTemplate propio con un tamaño de lectura acotado, para que el driver
+     * traiga las filas por bloques en lugar de cargar todo el resultado en memoria.
+     */
+    public TicketExportService(DataSource dataSource,
+                               @Value("${tickets.export.fetch-size:1000}") int fetchSize) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Escribe los tickets del rango indicado en el flujo de salida.
+     *
+     * @param format formato de salida.
+     * @param from fecha mínima (incluida), o null.
+     * @param to fecha máxima (excluida), o null.
+     * @param outputStream flujo de la respuesta HTTP.
+     * @throws IOException si falla la escritura (por ejemplo, si el cliente se desconecta).
+     */
+    public void export(Format format, Date from, Date to, OutputStream outputStream) throws IOException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT t.id, t.date, t.discount, t.subtotal, t.total, " +
+                "(SELECT COUNT(*) FROM product_ticket pt WHERE pt.ticket_id = t.id) AS products " +
+                "FROM tickets t WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND t.date >= ?");
+            params.add(new Timestamp(from.getTime()));
+        }
+        if (to != null) {
+            sql.append(" AND t.date < ?");
+            params.add(new Timestamp(to.getTime()));
+        }
+        sql.append(" ORDER BY t.date, t.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write("id,date,discount,products,subtotal,total\n");
+        }
+
+        String query = sql.toString();
+        PreparedStatement[] statement = new PreparedStatement[1];
+        PreparedStatementCreator creator = connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(query);
+            new ArgumentPreparedStatementSetter(params.toArray()).setValues(preparedStatement);
+            statement[0] = preparedStatement;
+            return preparedStatement;
+        };
+
+        long[] rows = {0};
+        RowCallbackHandler handler = rs -> {
+            String date = DATE_FORMAT.format(rs.getTimestamp("date").toInstant());
+            try {
+                if (format == Format.CSV) {
+                    writer.write(rs.getLong("id") + "," + date + "," + rs.getBigDecimal("discount") + ","
+                            + rs.getInt("products") + "," + rs.getBigDecimal("subtotal") + ","
+                            + rs.getBigDecimal("total") + "\n");
+                } else {
+                    writer.write("{\"id\":" + rs.getLong("id") + ",\"date\":\"" + date + "\",\"discount\":"
+                            + rs.getBigDecimal("discount") + ",\"products\":" + rs.getInt("products")
+                            + ",\"subtotal\":" + rs.getBigDecimal("subtotal") + ",\"total\":"
+                            + rs.getBigDecimal("total") + "}\n");
+                }
+            } catch (IOException e) {
+                // El cliente se ha desconectado: se cancela la consulta y se aborta la lectura del cursor
+                cancel(statement[0]);
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        };
+
+        try {
+            streamingJdbcTemplate.query(creator, handler);
+            writer.flush();
+            logger.info("Exportación de tickets en {} completada: {} filas.", format, rows[0]);
+        } catch (UncheckedIOException e) {
+            logger.warn("Exportación de tickets interrumpida tras {} filas: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            logger.warn("No se ha podido cancelar la consulta de exportación: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.TicketFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Servicio de huellas de contenido de los tickets, usadas para detectar tickets duplicados.
+ *
+ * La huella se calcula al crear el ticket, se recalcula cada vez que cambian sus productos,
+ * su fecha o su descuento, y se guarda en una columna con índice único, de modo que comprobar
+ * si un ticket ya existe es una única consulta sobre el índice. Un ticket sin productos no
+ * tiene huella, ya que todavía no identifica ningún ticket de compra. Los tickets anteriores
+ * a la columna se completan en segundo plano por bloques.
+ */
+@Service
+public class TicketFingerprintService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketFingerprintService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Tickets procesados en cada ejecución del relleno
+    @Value("${tickets.fingerprint.backfill.chunk-size:500}")
+    private int chunkSize;
+
+    // Último id procesado por el relleno; se reinicia con la aplicación
+    private volatile long backfillCursor;
+    private volatile boolean backfillDone;
+
+    /**
+     * Calcula la huella de un ticket a partir de sus productos en memoria.
+     *
+     * @param ticket ticket con fecha, descuento y productos.
+     * @return la huella del ticket, o null si no tiene productos.
+     */
+    public String fingerprintOf(Ticket ticket) {
+        List<TicketFingerprint.Line> lines = new ArrayList<>();
+        if (ticket.getProducts() != null) {
+            for (Product product : ticket.getProducts()) {
+                lines.add(new TicketFingerprint.Line(product.getName(), product.getPrice()));
+            }
+        }
+        return lines.isEmpty() ? null : TicketFingerprint.compute(ticket.getDate(), ticket.getDiscount(), lines);
+    }
+
+    /**
+     * Recalcula y guarda la huella de un ticket después de cambiar su contenido. Debe llamarse
+     * dentro de la transacción que hace el cambio. Si el nuevo contenido coincide con el de
+     * otro ticket, la edición se mantiene y el ticket se queda sin huella.
+     *
+     * @param ticketId identificador del ticket.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refresh(Long ticketId) {
+        List<Object[]> header = jdbcTemplate.query("SELECT date, discount FROM tickets WHERE id = ?",
+                (rs, rowNum) -> new Object[]{rs.getTimestamp("date"), rs.getBigDecimal("discount")}, ticketId);
+        if (header.isEmpty()) {
+            return;
+        }
+        List<TicketFingerprint.Line> lines = jdbcTemplate.query(
+                "SELECT p.name, p.price FROM product_ticket pt JOIN products p ON p.id = pt.product_id WHERE pt.ticket_id = ?",
+                (rs, rowNum) -> new TicketFingerprint.Line(rs.getString("name"), rs.getBigDecimal("price")), ticketId);
+        String fingerprint = lines.isEmpty() ? null
+                : TicketFingerprint.compute((Date) header.get(0)[0], (BigDecimal) header.get(0)[1], lines);
+        try {
+            jdbcTemplate.update("UPDATE tickets SET fingerprint = ? WHERE id = ?", fingerprint, ticketId);
+        } catch (DuplicateKeyException e) {
+            // MariaDB deshace solo la sentencia fallida; la transacción sigue siendo válida
+            logger.warn("El ticket {} coincide con otro ticket tras la edición; se queda sin huella", ticketId);
+            jdbcTemplate.update("UPDATE tickets SET fingerprint = NULL WHERE id = ?", ticketId);
+        }
+    }
+
+    /**
+     * Busca el ticket que tiene una huella.
+     *
+     * @param fingerprint huella a buscar.
+     * @return el id del ticket, o vacío si no hay ninguno.
+     */
+    public Optional<Long> findTicketId(String fingerprint) {
+        return jdbcTemplate.queryForList("SELECT id FROM tickets WHERE fingerprint = ?", Long.class, fingerprint)
+                .stream().findFirst();
+    }
+
+    /**
+     * Busca qué huellas ya están guardadas.
+     *
+     * @param fingerprints huellas a buscar.
+     * @return mapa huella -> id del ticket para las huellas encontradas.
+     */
+    public Map<String, Long> findExisting(Collection<String> fingerprints) {
+        Map<String, Long> existing = new HashMap<>();
+        Set<String> distinct = new HashSet<>(fingerprints);
+        distinct.remove(null);
+        if (!distinct.isEmpty()) {
+            namedParameterJdbcTemplate.query("SELECT id, fingerprint FROM tickets WHERE fingerprint IN (:fingerprints)",
+                    new MapSqlParameterSource("fingerprints", distinct),
+                    (RowCallbackHandler) rs -> existing.put(rs.getString("fingerprint"), rs.getLong("id")));
+        }
+        return existing;
+    }
+
+    /**
+     * Calcula la huella de un bloque de tickets que aún no la tienen. Los tickets sin productos
+     * y los tickets cuyo contenido coincide con otro ya guardado se dejan sin huella; estos
+     * últimos se registran en el log.
+     */
+    @Scheduled(fixedDelayString = "${tickets.fingerprint.backfill.delay.ms:10000}")
+    public void backfillChunk() {
+        if (backfillDone) {
+            return;
+        }
+        LinkedHashMap<Long, Object[]> tickets = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, date, discount FROM tickets WHERE id > ? AND fingerprint IS NULL ORDER BY id LIMIT ?",
+                (RowCallbackHandler) rs -> tickets.put(rs.getLong("id"),
+                        new Object[]{rs.getTimestamp("date"), rs.getBigDecimal("discount")}),
+                backfillCursor, chunkSize);
+        if (tickets.isEmpty()) {
+            backfillDone = true;
+            logger.info("Relleno de huellas de tickets completado.");
+            return;
+        }
+
+        Map<Long, List<TicketFingerprint.Line>> lines = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT pt.ticket_id, p.name, p.price FROM product_ticket pt JOIN products p ON p.id = pt.product_id " +
+                "WHERE pt.ticket_id IN (:ids)",
+                new MapSqlParameterSource("ids", tickets.keySet()),
+                (RowCallbackHandler) rs -> lines.computeIfAbsent(rs.getLong("ticket_id"), id -> new ArrayList<>())
+                        .add(new TicketFingerprint.Line(rs.getString("name"), rs.getBigDecimal("price"))));
+
+        Map<String, Long> computed = new LinkedHashMap<>();
+        int duplicates = 0;
+        for (Map.Entry<Long, Object[]> ticket : tickets.entrySet()) {
+            if (!lines.containsKey(ticket.getKey())) {
+                continue;
+            }
+            String fingerprint = TicketFingerprint.compute((Date) ticket.getValue()[0], (BigDecimal) ticket.getValue()[1],
+                    lines.get(ticket.getKey()));
+            if (computed.putIfAbsent(fingerprint, ticket.getKey()) != null) {
+                duplicates++;
+                logger.warn("El ticket {} duplica al ticket {}", ticket.getKey(), computed.get(fingerprint));
+            }
+        }
+        Map<String, Long> stored = findExisting(computed.keySet());
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : computed.entrySet()) {
+            if (stored.containsKey(entry.getKey())) {
+                duplicates++;
+                logger.warn("El ticket {} duplica al ticket {}", entry.getValue(), stored.get(entry.getKey()));
+            } else {
+                updates.add(new Object[]{entry.getKey(), entry.getValue()});
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("UPDATE tickets SET fingerprint = ? WHERE id = ? AND fingerprint IS NULL", updates);
+        } catch (DuplicateKeyException e) {
+            // Un ticket nuevo con la misma huella se ha insertado a la vez; el bloque se repite en la siguiente ejecución
+            logger.warn("Conflicto al guardar huellas de tickets; se reintentará el bloque: {}", e.getMessage());
+            return;
+        }
+        backfillCursor = tickets.lastEntry().getKey();
+        logger.info("Huellas calculadas para {} tickets ({} duplicados), hasta el id {}.",
+                updates.size(), duplicates, backfillCursor);
+    }
+}
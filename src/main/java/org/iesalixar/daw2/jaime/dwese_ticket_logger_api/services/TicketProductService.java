@@ -0,0 +1,331 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketProductsResultDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Servicio que añade y quita productos de un ticket operando directamente sobre la tabla
+ * product_ticket.
+ *
+ * Modificar la colección `products` del ticket obliga a cargarla entera y, al ser una
+ * List @ManyToMany, Hibernate borra y vuelve a insertar todas sus filas. Aquí cada operación
+ * es una inserción o un borrado de una fila; la clave primaria (product_id, ticket_id)
+ * detecta los duplicados, y el subtotal y el total persistidos se actualizan con una
+ * única sentencia relativa. El coste no depende del número de productos del ticket.
+ *
+ * Estas operaciones no incrementan la versión del ticket: añadir o quitar productos
+ * distintos conmuta entre sí y con la edición del descuento, por lo que dos usuarios pueden
+ * modificar el mismo ticket a la vez sin perder cambios ni recibir conflictos.
+ *
+ * No se bloquea el ticket de antemano. Cada operación actualiza primero los totales del
+ * ticket y después escribe en product_ticket, siempre en ese orden, de modo que la clave
+ * ajena (que toma un bloqueo compartido sobre el ticket al insertar) no provoca bloqueos
+ * mutuos entre dos altas. Si la base de datos aborta aun así una transacción por un bloqueo
+ * mutuo o por tiempo de espera, la operación se repite, ya que conmuta con la que ha ganado.
+ * Los productos con el mismo nombre en un ticket se detectan con una clave única.
+ */
+@Service
+public class TicketProductService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketProductService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO product_ticket (product_id, ticket_id) VALUES (?, ?)";
+
+    // name_key solo se rellena en los productos creados desde el ticket; la clave única
+    // (ticket_id, name_key) impide que dos altas simultáneas creen el mismo nombre
+    private static final String INSERT_NAMED_SQL =
+            "INSERT INTO product_ticket (product_id, ticket_id, name_key) VALUES (?, ?, LOWER(?))";
+
+    private static final String DELETE_SQL = "DELETE FROM product_ticket WHERE product_id = ? AND ticket_id = ?";
+
+    private static final String PRICE_SQL = "SELECT price FROM products WHERE id = ?";
+
+    private static final String PRICE_SUM_SQL = "SELECT COALESCE(SUM(price), 0) FROM products WHERE id IN (:productIds)";
+
+    // Suma (o resta) un importe al subtotal. MariaDB asigna las columnas en orden, por lo que
+    // total usa el subtotal ya actualizado.
+    private static final String UPDATE_TOTALS_SQL =
+            "UPDATE tickets t SET " +
+            " t.subtotal = t.subtotal + ?, " +
+            " t.total = ROUND(t.subtotal - t.subtotal * t.discount / 100, 2) " +
+            "WHERE t.id = ?";
+
+    /**
+     * Resultado de añadir o quitar un producto.
+     */
+    public enum Outcome {
+        // El producto se ha añadido o quitado
+        DONE,
+        // El producto ya estaba en el ticket (al añadir) o no estaba (al quitar)
+        UNCHANGED,
+        // El ticket o el producto no existen
+        NOT_FOUND
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    @Autowired
+    private TicketFingerprintService ticketFingerprintService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Número máximo de intentos de una operación cuando otra petición sobre el mismo ticket la aborta
+    @Value("${tickets.products.bulk.max-attempts:3}")
+    private int maxAttempts;
+
+    // Número máximo de productos en una misma petición de alta múltiple
+    @Value("${tickets.products.bulk.max-size:1000}")
+    private int maxBulkSize;
+
+    public TicketProductService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Las lecturas hechas tras actualizar los totales deben ver lo confirmado por la operación
+        // anterior sobre el ticket, no la foto tomada al empezar la transacción
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * Añade un producto existente a un ticket.
+     *
+     * @param ticketId identificador del ticket.
+     * @param productId identificador del producto.
+     * @return DONE si se ha añadido, UNCHANGED si ya estaba en el ticket y NOT_FOUND si
+     *         el ticket o el producto no existen.
+     */
+    public Outcome addProduct(Long ticketId, Long productId) {
+        return execute(ticketId, status -> {
+            List<BigDecimal> price = jdbcTemplate.queryForList(PRICE_SQL, BigDecimal.class, productId);
+            if (price.isEmpty() || !adjustTotals(ticketId, price.get(0))) {
+                return Outcome.NOT_FOUND;
+            }
+            try {
+                jdbcTemplate.update(INSERT_SQL, productId, ticketId);
+            } catch (DuplicateKeyException e) {
+                // Se deshace también la actualización de los totales
+                logger.debug("El producto {} ya está en el ticket {}", productId, ticketId);
+                status.setRollbackOnly();
+                return Outcome.UNCHANGED;
+            } catch (DataIntegrityViolationException e) {
+                // La clave ajena rechaza la fila si el producto se ha borrado entretanto
+                status.setRollbackOnly();
+                return Outcome.NOT_FOUND;
+            }
+            applyChange(ticketId, price.get(0));
+            return Outcome.DONE;
+        });
+    }
+
+    /**
+     * Crea un producto nuevo y lo añade a un ticket, salvo que el ticket ya tenga un
+     * producto con el mismo nombre.
+     *
+     * @param ticketId identificador del ticket.
+     * @param name nombre del producto.
+     * @param price precio del producto.
+     * @return DONE si se ha creado y añadido, UNCHANGED si el ticket ya tiene un producto
+     *         con ese nombre y NOT_FOUND si el ticket no existe.
+     */
+    public Outcome addNewProduct(Long ticketId, String name, BigDecimal price) {
+        return execute(ticketId, status -> {
+            if (!adjustTotals(ticketId, price)) {
+                return Outcome.NOT_FOUND;
+            }
+            // Productos con el mismo nombre añadidos como productos existentes (sin name_key)
+            Integer sameName = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM product_ticket pt JOIN products p ON p.id = pt.product_id " +
+                    "WHERE pt.ticket_id = ? AND LOWER(p.name) = LOWER(?)", Integer.class, ticketId, name);
+            if (sameName != null && sameName > 0) {
+                status.setRollbackOnly();
+                return Outcome.UNCHANGED;
+            }
+            Product product = new Product();
+            product.setName(name);
+            product.setPrice(price);
+            productRepository.save(product);
+            try {
+                jdbcTemplate.update(INSERT_NAMED_SQL, product.getId(), ticketId, name);
+            } catch (DuplicateKeyException e) {
+                // Otra alta ha creado el mismo nombre a la vez; se deshacen el producto y los totales
+                logger.debug("El ticket {} ya tiene un producto llamado '{}'", ticketId, name);
+                status.setRollbackOnly();
+                return Outcome.UNCHANGED;
+            }
+            applyChange(ticketId, price);
+            return Outcome.DONE;
+        });
+    }
+
+    /**
+     * Añade varios productos a un ticket. Los productos que ya estaban en el ticket o que
+     * no existen se omiten y se informan en el resultado. Si la clave primaria rechaza el lote
+     * porque otra petición ha añadido a la vez alguno de los productos, la operación se repite
+     * en una nueva transacción, ya que añadir productos distintos conmuta.
+     *
+     * @param ticketId identificador del ticket.
+     * @param productIds identificadores de los productos.
+     * @return el resultado de la operación, o null si el ticket no existe.
+     * @throws IllegalArgumentException si la lista está vacía o supera el tamaño máximo.
+     */
+    public TicketProductsResultDTO addProducts(Long ticketId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            throw new IllegalArgumentException("La lista de productos está vacía.");
+        }
+        Set<Long> requested = new LinkedHashSet<>(productIds);
+        requested.remove(null);
+        if (requested.size() > maxBulkSize) {
+            throw new IllegalArgumentException("La lista supera el máximo de " + maxBulkSize + " productos.");
+        }
+        return execute(ticketId, status -> insertProducts(ticketId, requested));
+    }
+
+    private TicketProductsResultDTO insertProducts(Long ticketId, Set<Long> requested) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ticketId", ticketId)
+                .addValue("productIds", requested);
+        Set<Long> existing = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE id IN (:productIds)", params, Long.class));
+        // Si otra petición añade alguno de estos productos antes de la inserción, la clave
+        // primaria la rechaza y execute repite la operación con los datos ya confirmados
+        Set<Long> alreadyOnTicket = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT product_id FROM product_ticket WHERE ticket_id = :ticketId AND product_id IN (:productIds)",
+                params, Long.class));
+
+        List<Long> added = new ArrayList<>();
+        List<Long> duplicates = new ArrayList<>();
+        List<Long> notFound = new ArrayList<>();
+        for (Long productId : requested) {
+            if (!existing.contains(productId)) {
+                notFound.add(productId);
+            } else if (alreadyOnTicket.contains(productId)) {
+                duplicates.add(productId);
+            } else {
+                added.add(productId);
+            }
+        }
+
+        BigDecimal amount = added.isEmpty() ? BigDecimal.ZERO : namedParameterJdbcTemplate.queryForObject(
+                PRICE_SUM_SQL, new MapSqlParameterSource("productIds", added), BigDecimal.class);
+        if (!adjustTotals(ticketId, amount)) {
+            return null;
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, added, added.size(), (ps, productId) -> {
+                ps.setLong(1, productId);
+                ps.setLong(2, ticketId);
+            });
+            applyChange(ticketId, amount);
+        }
+        logger.info("Ticket {}: {} productos añadidos, {} duplicados, {} inexistentes",
+                ticketId, added.size(), duplicates.size(), notFound.size());
+        return new TicketProductsResultDTO(ticketId, added, duplicates, notFound);
+    }
+
+    /**
+     * Quita un producto de un ticket.
+     *
+     * @param ticketId identificador del ticket.
+     * @param productId identificador del producto.
+     * @return DONE si se ha quitado, UNCHANGED si no estaba en el ticket y NOT_FOUND si el
+     *         ticket no existe.
+     */
+    public Outcome removeProduct(Long ticketId, Long productId) {
+        return execute(ticketId, status -> {
+            List<BigDecimal> price = jdbcTemplate.queryForList(PRICE_SQL, BigDecimal.class, productId);
+            if (price.isEmpty()) {
+                // Un producto inexistente no puede estar en el ticket
+                return jdbcTemplate.queryForList("SELECT id FROM tickets WHERE id = ?", Long.class, ticketId).isEmpty()
+                        ? Outcome.NOT_FOUND : Outcome.UNCHANGED;
+            }
+            BigDecimal amount = price.get(0).negate();
+            if (!adjustTotals(ticketId, amount)) {
+                return Outcome.NOT_FOUND;
+            }
+            if (jdbcTemplate.update(DELETE_SQL, productId, ticketId) == 0) {
+                status.setRollbackOnly();
+                return Outcome.UNCHANGED;
+            }
+            applyChange(ticketId, amount);
+            return Outcome.DONE;
+        });
+    }
+
+    /**
+     * Ejecuta una operación en su propia transacción y la repite si la base de datos la aborta
+     * por un bloqueo mutuo o un tiempo de espera, o si la clave primaria rechaza un alta
+     * múltiple que otra petición ha adelantado.
+     */
+    private <T> T execute(Long ticketId, TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (PessimisticLockingFailureException | DuplicateKeyException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.info("Conflicto al modificar los productos del ticket {}; reintento {} de {}",
+                        ticketId, attempt + 1, maxAttempts);
+            }
+        }
+    }
+
+    /**
+     * Suma o resta un importe a los totales del ticket. Es la primera escritura de cada
+     * operación y bloquea la fila del ticket hasta el final de la transacción.
+     *
+     * @return false si el ticket no existe.
+     */
+    private boolean adjustTotals(Long ticketId, BigDecimal amount) {
+        return jdbcTemplate.update(UPDATE_TOTALS_SQL, amount, ticketId) > 0;
+    }
+
+    /**
+     * Aplica a los agregados de gasto la variación ya sumada a los totales del ticket y
+     * recalcula su huella. El ticket se lee después de actualizarlo para partir de sus
+     * valores actuales.
+     */
+    private void applyChange(Long ticketId, BigDecimal amount) {
+        jdbcTemplate.query("SELECT date, discount, subtotal, total FROM tickets WHERE id = ?", (RowCallbackHandler) rs -> {
+            BigDecimal subtotal = rs.getBigDecimal("subtotal");
+            BigDecimal previousTotal = Ticket.applyDiscount(subtotal.subtract(amount), rs.getBigDecimal("discount"));
+            spendingRollupService.apply(rs.getTimestamp("date"), 0, amount,
+                    rs.getBigDecimal("total").subtract(previousTotal));
+        }, ticketId);
+        ticketFingerprintService.refresh(ticketId);
+    }
+}
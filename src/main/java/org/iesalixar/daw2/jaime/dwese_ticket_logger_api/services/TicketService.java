@@ -0,0 +1,240 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketPageDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.mappers.TicketMapper;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.TicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class TicketService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketService.class);
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private TicketMapper ticketMapper;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    @Autowired
+    private TicketFingerprintService ticketFingerprintService;
+
+    // Tamaño máximo de página permitido, independientemente de lo que pida el cliente
+    @Value("${tickets.page.max-size:100}")
+    private int maxPageSize;
+
+    /**
+     * Obtiene una página de tickets usando paginación por clave sobre (date, id).
+     *
+     * @param cursor cursor devuelto en la página anterior, o null para la primera página.
+     * @param size tamaño de página solicitado; se limita al máximo configurado.
+     * @param from fecha mínima (incluida), o null.
+     * @param to fecha máxima (excluida), o null.
+     * @param minDiscount descuento mínimo, o null.
+     * @param maxDiscount descuento máximo, o null.
+     * @param minTotal total mínimo del ticket, o null.
+     * @return la página de tickets con el cursor de la siguiente.
+     * @throws IllegalArgumentException si el cursor no es válido.
+     */
+    @Transactional(readOnly = true)
+    public TicketPageDTO getTickets(String cursor, int size, Date from, Date to,
+                                    BigDecimal minDiscount, BigDecimal maxDiscount, BigDecimal minTotal) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        // Se pide un elemento más para saber si hay página siguiente sin hacer un COUNT
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Ticket> tickets;
+        if (cursor == null || cursor.isBlank()) {
+            tickets = ticketRepository.findFirstPage(from, to, minDiscount, maxDiscount, minTotal, limit);
+        } else {
+            Cursor position = decodeCursor(cursor);
+            tickets = ticketRepository.findPageAfter(position.date(), position.id(),
+                    from, to, minDiscount, maxDiscount, minTotal, limit);
+        }
+
+        boolean hasNext = tickets.size() > pageSize;
+        List<Ticket> page = hasNext ? tickets.subList(0, pageSize) : tickets;
+        String nextCursor = hasNext ? encodeCursor(page.get(page.size() - 1)) : null;
+
+        logger.info("Se han cargado {} tickets (tamaño de página {}).", page.size(), pageSize);
+        List<TicketDTO> content = page.stream().map(ticketMapper::toDTO).toList();
+        return new TicketPageDTO(content, content.size(), nextCursor);
+    }
+
+    /**
+     * Busca un ticket por su ID.
+     *
+     * @param id Identificador del ticket.
+     * @return Un Optional con el `TicketDTO` si existe.
+     */
+    @Transactional(readOnly = true)
+    public Optional<TicketDTO> getTicketById(Long id) {
+        // El DTO no incluye los productos, así que no se cargan
+        return ticketRepository.findById(id).map(ticketMapper::toDTO);
+    }
+
+    /**
+     * Modifica la fecha y el descuento de un ticket. Solo se escriben las columnas cuyo valor
+     * cambia, y el total se recalcula en la base de datos a partir del subtotal actual, de
+     * modo que la edición no pisa los productos añadidos o quitados a la vez por otro usuario.
+     *
+     * @param id identificador del ticket.
+     * @param expectedVersion versión del ticket leída por el cliente, o null para no comprobarla.
+     * @param date nueva fecha, o null para no modificarla.
+     * @param discount nuevo descuento, o null para no modificarlo.
+     * @return el ticket actualizado, o vacío si no existe.
+     * @throws OptimisticLockingFailureException si otro usuario ha modificado la fecha o el
+     *         descuento desde la versión indicada.
+     */
+    @Transactional
+    public Optional<TicketDTO> updateTicketFields(Long id, Long expectedVersion, Date date, BigDecimal discount) {
+        Optional<Ticket> currentOpt = ticketRepository.findById(id);
+        if (currentOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        Ticket current = currentOpt.get();
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            throw new OptimisticLockingFailureException("El ticket " + id + " ha sido modificado por otro usuario.");
+        }
+
+        List<String> assignments = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("version", current.getVersion());
+        if (date != null && (current.getDate() == null || date.getTime() != current.getDate().getTime())) {
+            assignments.add("date = :date");
+            params.addValue("date", date);
+        }
+        if (discount != null && (current.getDiscount() == null || discount.compareTo(current.getDiscount()) != 0)) {
+            assignments.add("discount = :discount");
+            assignments.add("total = ROUND(subtotal - subtotal * :discount / 100, 2)");
+            params.addValue("discount", discount);
+        }
+        if (assignments.isEmpty()) {
+            return Optional.of(ticketMapper.toDTO(current));
+        }
+
+        String sql = "UPDATE tickets SET " + String.join(", ", assignments) +
+                ", version = version + 1 WHERE id = :id AND version = :version";
+        if (namedParameterJdbcTemplate.update(sql, params) == 0) {
+            // Otra edición se ha confirmado entre la lectura y la actualización
+            throw new OptimisticLockingFailureException("El ticket " + id + " ha sido modificado por otro usuario.");
+        }
+        logger.info("Ticket {} actualizado: {}", id, assignments);
+        ticketFingerprintService.refresh(id);
+
+        // Los cambios se han hecho por SQL: se vuelve a leer el ticket para devolver sus valores actuales.
+        // El subtotal leído incluye los productos añadidos a la vez por otros usuarios.
+        Date previousDate = current.getDate();
+        BigDecimal previousDiscount = current.getDiscount();
+        entityManager.refresh(current);
+
+        // Se mueve la aportación del ticket a los agregados de su nueva fecha y total
+        BigDecimal subtotal = current.getSubtotal();
+        spendingRollupService.apply(List.of(
+                new SpendingRollupService.Delta(previousDate, -1, subtotal.negate(),
+                        Ticket.applyDiscount(subtotal, previousDiscount).negate()),
+                new SpendingRollupService.Delta(current.getDate(), 1, subtotal, current.getTotal())));
+        return Optional.of(ticketMapper.toDTO(current));
+    }
+
+    /**
+     * Crea un ticket a partir de sus productos y actualiza los agregados de gasto.
+     * Un ticket creado sin productos no tiene huella hasta que se le añaden.
+     *
+     * @param ticket ticket a crear.
+     * @return el ticket guardado.
+     * @throws DuplicateKeyException si ya existe un ticket con el mismo contenido.
+     */
+    @Transactional
+    public Ticket createTicket(Ticket ticket) {
+        ticket.recalculateTotals();
+        ticket.setFingerprint(ticketFingerprintService.fingerprintOf(ticket));
+        if (ticket.getFingerprint() != null) {
+            Optional<Long> existingId = ticketFingerprintService.findTicketId(ticket.getFingerprint());
+            if (existingId.isPresent()) {
+                throw new DuplicateKeyException("El ticket duplica al ticket " + existingId.get() + ".");
+            }
+        }
+        Ticket saved;
+        try {
+            // Se fuerza la inserción para que un duplicado guardado a la vez se detecte aquí y no en el commit
+            saved = ticketRepository.saveAndFlush(ticket);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateKeyException("Ya existe un ticket con el mismo contenido.", e);
+        }
+        spendingRollupService.apply(saved.getDate(), 1, saved.getSubtotal(), saved.getTotal());
+        return saved;
+    }
+
+    /**
+     * Elimina un ticket y descuenta su aportación de los agregados de gasto.
+     *
+     * @param id identificador del ticket.
+     * @return true si el ticket existía.
+     */
+    @Transactional
+    public boolean deleteTicket(Long id) {
+        Optional<Ticket> ticket = ticketRepository.findById(id);
+        if (ticket.isEmpty()) {
+            return false;
+        }
+        ticketRepository.delete(ticket.get());
+        spendingRollupService.apply(ticket.get().getDate(), -1,
+                ticket.get().getSubtotal().negate(), ticket.get().getTotal().negate());
+        return true;
+    }
+
+    /**
+     * Posición de un ticket en el orden (date, id).
+     */
+    private record Cursor(Date date, Long id) {
+    }
+
+    private String encodeCursor(Ticket ticket) {
+        String raw = ticket.getDate().getTime() + ":" + ticket.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            return new Cursor(new Date(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("El cursor de paginación no es válido.");
+        }
+    }
+}
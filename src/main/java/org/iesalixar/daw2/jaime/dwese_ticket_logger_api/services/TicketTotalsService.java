@@ -0,0 +1,84 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio de mantenimiento de los totales persistidos de los tickets.
+ *
+ * Permite rellenar las columnas subtotal y total de los tickets existentes y comprobar
+ * bajo demanda que coinciden con la suma de los precios de sus productos. Ambas
+ * operaciones se resuelven en la base de datos, sin cargar los tickets en memoria.
+ */
+@Service
+public class TicketTotalsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketTotalsService.class);
+
+    // Recalcula subtotal y total de un rango de tickets. MariaDB asigna las columnas en orden,
+    // por lo que total usa el subtotal ya actualizado.
+    private static final String BACKFILL_SQL =
+            "UPDATE tickets t SET " +
+            " t.subtotal = (SELECT COALESCE(SUM(p.price), 0) FROM product_ticket pt " +
+            "               JOIN products p ON p.id = pt.product_id WHERE pt.ticket_id = t.id), " +
+            " t.total = ROUND(t.subtotal - t.subtotal * t.discount / 100, 2) " +
+            "WHERE t.id BETWEEN ? AND ?";
+
+    // Tickets cuyos totales persistidos no coinciden con los calculados a partir de sus productos
+    private static final String CHECK_SQL =
+            "SELECT t.id, t.subtotal, t.total, t.expected_subtotal, " +
+            "       ROUND(t.expected_subtotal - t.expected_subtotal * t.discount / 100, 2) AS expected_total " +
+            "FROM (SELECT tk.id, tk.subtotal, tk.total, tk.discount, COALESCE(SUM(p.price), 0) AS expected_subtotal " +
+            "      FROM tickets tk " +
+            "      LEFT JOIN product_ticket pt ON pt.ticket_id = tk.id " +
+            "      LEFT JOIN products p ON p.id = pt.product_id " +
+            "      GROUP BY tk.id, tk.subtotal, tk.total, tk.discount) t " +
+            "WHERE t.subtotal <> t.expected_subtotal " +
+            "   OR t.total <> ROUND(t.expected_subtotal - t.expected_subtotal * t.discount / 100, 2) " +
+            "LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Número de tickets que se recalculan en cada sentencia del relleno
+    @Value("${tickets.totals.backfill.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Recalcula los totales de todos los tickets por rangos de id, para no bloquear
+     * la tabla completa en una única sentencia.
+     *
+     * @return número de tickets actualizados.
+     */
+    public long backfill() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM tickets", Long.class);
+        if (maxId == null) {
+            return 0;
+        }
+        long updated = 0;
+        for (long start = 1; start <= maxId; start += chunkSize) {
+            updated += jdbcTemplate.update(BACKFILL_SQL, start, start + chunkSize - 1);
+        }
+        logger.info("Relleno de totales completado: {} tickets actualizados.", updated);
+        return updated;
+    }
+
+    /**
+     * Comprueba la coherencia de los totales persistidos.
+     *
+     * @param limit número máximo de incoherencias a devolver.
+     * @return lista de tickets incoherentes con sus valores actuales y esperados.
+     */
+    public List<Map<String, Object>> findInconsistentTotals(int limit) {
+        List<Map<String, Object>> inconsistent = jdbcTemplate.queryForList(CHECK_SQL, limit);
+        logger.info("Comprobación de totales: {} tickets incoherentes.", inconsistent.size());
+        return inconsistent;
+    }
+}
@@ -0,0 +1,141 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.RevokedToken;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.RevokedTokenRepository;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de revocación de tokens JWT por su claim `jti`.
+ *
+ * Las revocaciones se guardan en la tabla revoked_tokens y delante se mantiene un filtro
+ * de Bloom en memoria. El caso habitual (token no revocado) se resuelve en el filtro sin
+ * consultar la base de datos; solo si el filtro responde "puede que esté" se confirma
+ * contra la tabla. El filtro se reconstruye al arrancar y periódicamente para descartar
+ * los tokens ya caducados.
+ *
+ * Una revocación se añade al filtro al guardarla y otra vez al confirmar su transacción.
+ * Las revocaciones añadidas mientras se reconstruye el filtro se incorporan al filtro nuevo,
+ * ya que la lectura de la tabla puede no verlas todavía.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${jwt.revocation.bloom.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${jwt.revocation.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Filtro vigente; se sustituye entero al reconstruirlo
+    private volatile BloomFilter bloomFilter = new BloomFilter(1, 0.01);
+
+    // jtis añadidos desde que empezó la reconstrucción en curso, o null si no hay ninguna
+    private Set<String> addedDuringRebuild;
+
+    // Evita que dos reconstrucciones se solapen
+    private final Object rebuildLock = new Object();
+
+    /**
+     * Revoca un token hasta su fecha de expiración.
+     *
+     * @param jti identificador del token.
+     * @param expiration fecha de expiración del token.
+     */
+    @Transactional
+    public void revoke(String jti, Date expiration) {
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault());
+        revokedTokenRepository.save(new RevokedToken(jti, expiresAt));
+        addToFilter(jti);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Una reconstrucción que lea la tabla antes del commit no verá esta fila
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToFilter(jti);
+                }
+            });
+        }
+        logger.info("Token {} revocado hasta {}", jti, expiresAt);
+    }
+
+    /**
+     * Indica si el token con el jti indicado ha sido revocado.
+     *
+     * @param jti identificador del token; los tokens sin jti no se pueden revocar.
+     * @return true si el token está revocado.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloomFilter.mightContain(jti)) {
+            return false;
+        }
+        // Posible positivo: se confirma contra la tabla
+        return revokedTokenRepository.existsById(jti);
+    }
+
+    /**
+     * Reconstruye el filtro de Bloom a partir de las revocaciones persistidas al arrancar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    /**
+     * Elimina las revocaciones caducadas y reconstruye el filtro sin ellas.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup.ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        logger.info("Eliminadas {} revocaciones de tokens caducados.", deleted);
+        rebuild();
+    }
+
+    private synchronized void addToFilter(String jti) {
+        bloomFilter.put(jti);
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(jti);
+        }
+    }
+
+    private void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                addedDuringRebuild = ConcurrentHashMap.newKeySet();
+            }
+            List<String> jtis = revokedTokenRepository.findActiveJtis(LocalDateTime.now());
+            BloomFilter filter = new BloomFilter(Math.max(expectedInsertions, jtis.size() * 2L), falsePositiveRate);
+            jtis.forEach(filter::put);
+            synchronized (this) {
+                // Se incorporan las revocaciones añadidas mientras se leía la tabla
+                addedDuringRebuild.forEach(filter::put);
+                addedDuringRebuild = null;
+                bloomFilter = filter;
+            }
+            logger.info("Filtro de revocación reconstruido con {} tokens.", jtis.size());
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
 
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.UserDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Role;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.User;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.UserCacheListener;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.mappers.UserMapper;
 import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class UserService {
@@ -22,6 +27,9 @@ public class UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private UserCacheListener userCacheListener;
+
     public Long getIdByUsername(String username){
         return userRepository.getIdByUsername(username);
     };
@@ -34,4 +42,22 @@ public class UserService {
         }
         throw new RuntimeException("El usuario con identificador " + id + " no existe.");
     }
+
+    /**
+     * Sustituye los roles de un usuario. Cambiar solo la colección de roles no lanza
+     * @PostUpdate, así que las cachés de autenticación se invalidan aquí explícitamente.
+     *
+     * @param id identificador del usuario.
+     * @param roles nuevos roles del usuario.
+     * @return el usuario actualizado.
+     */
+    @Transactional
+    public UserDTO updateRoles(Long id, Set<Role> roles) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("El usuario con identificador " + id + " no existe."));
+        user.setRoles(new HashSet<>(roles));
+        userCacheListener.evict(user.getUsername());
+        logger.info("Roles del usuario {} actualizados.", user.getUsername());
+        return userMapper.toDTO(user);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio que decide si un token JWT sigue siendo aceptable sin consultar la base de
+ * datos en cada petición.
+ *
+ * Para cada usuario guarda en memoria si está habilitado y la fecha del último cambio de
+ * contraseña. Un token se considera revocado si el usuario no existe, está deshabilitado o
+ * cambió su contraseña después de la emisión del token (claim "iat").
+ */
+@Service
+public class UserTokenStateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserTokenStateService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Tiempo máximo (en segundos) que se reutiliza el estado de un usuario antes de
+     * volver a leerlo de la base de datos.
+     */
+    @Value("${jwt.user-state.cache.ttl.seconds:60}")
+    private long cacheTtlSeconds;
+
+    private final Map<String, TokenState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Estado mínimo de un usuario necesario para validar sus tokens.
+     *
+     * @param exists si el usuario existe.
+     * @param enabled si el usuario está habilitado.
+     * @param passwordChangedAt instante (ms) del último cambio de contraseña, o 0 si no consta.
+     * @param loadedAt instante (ms) en que se leyó el estado de la base de datos.
+     */
+    private record TokenState(boolean exists, boolean enabled, long passwordChangedAt, long loadedAt) {
+    }
+
+    /**
+     * Comprueba si un token emitido para el usuario en la fecha indicada ha sido revocado.
+     *
+     * @param username nombre de usuario (claim "sub").
+     * @param issuedAt fecha de emisión del token (claim "iat").
+     * @return true si el token ya no debe aceptarse.
+     */
+    public boolean isTokenRevoked(String username, Date issuedAt) {
+        TokenState state = getState(username);
+        if (!state.exists() || !state.enabled()) {
+            return true;
+        }
+        if (issuedAt == null) {
+            return state.passwordChangedAt() > 0;
+        }
+        // "iat" tiene precisión de segundos, así que se compara al segundo
+        return state.passwordChangedAt() / 1000 > issuedAt.getTime() / 1000;
+    }
+
+    /**
+     * Descarta el estado guardado de un usuario. Debe llamarse cuando cambia su contraseña
+     * o se habilita/deshabilita para que la revocación tenga efecto de inmediato.
+     *
+     * @param username nombre de usuario.
+     */
+    public void invalidate(String username) {
+        if (username != null) {
+            states.remove(username);
+        }
+    }
+
+    private TokenState getState(String username) {
+        long now = System.currentTimeMillis();
+        TokenState state = states.get(username);
+        if (state == null || now - state.loadedAt() > cacheTtlSeconds * 1000) {
+            state = loadState(username, now);
+            states.put(username, state);
+        }
+        return state;
+    }
+
+    private TokenState loadState(String username, long now) {
+        logger.debug("Cargando el estado de los tokens del usuario {}", username);
+        return userRepository.findTokenStateByUsername(username)
+                .map(view -> new TokenState(true, Boolean.TRUE.equals(view.getEnabled()),
+                        view.getLastPasswordChangeDate() == null ? 0
+                                : view.getLastPasswordChangeDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                        now))
+                .orElseGet(() -> new TokenState(false, false, 0, now));
+    }
+}
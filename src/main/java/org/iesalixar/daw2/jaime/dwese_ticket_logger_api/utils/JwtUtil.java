@@ -2,24 +2,69 @@ package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
 import io.jsonwebtoken.security.Keys;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.config.JwtKeySet;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
     @Autowired
-    private KeyPair jwtKeyPair;
+    private JwtKeySet jwtKeySet;
 
-    private static final long JWT_EXPIRATION = 3600000;
+    /**
+     * Duración (en segundos) de los tokens de acceso.
+     * Se configura con jwt.max.expiration.seconds en application.properties.
+     */
+    @Value("${jwt.max.expiration.seconds:3600}")
+    private long jwtExpirationSeconds;
+
+    /**
+     * Número máximo de tokens verificados que se mantienen en memoria.
+     * Se configura con jwt.cache.max.entries en application.properties.
+     */
+    @Value("${jwt.cache.max.entries:10000}")
+    private int cacheMaxEntries;
+
+    /**
+     * Caché de claims ya verificados, indexada por el resumen SHA-256 del token.
+     * Cada entrada caduca en el mismo instante que el claim "exp" del token, de forma
+     * que la firma solo se comprueba una vez por token mientras siga vigente.
+     */
+    private final Map<String, CachedClaims> verifiedClaimsCache = new ConcurrentHashMap<>();
+
+    // Al llenarse la caché se libera una décima parte, para no ordenarla en cada inserción
+    private static final int CACHE_TRIM_DIVISOR = 10;
+
+    // Contadores de aciertos y fallos de la caché
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * Entrada de la caché: claims verificados y el instante (ms) en que dejan de ser válidos.
+     */
+    private record CachedClaims(Claims claims, long expiresAt) {
+    }
 
     /**
      * Clave secreta para firmar y verificar el token JWT.
@@ -69,38 +114,64 @@ public class JwtUtil {
      * Genera un token JWT para un usuario con roles específicos.
      *
      * Incluye los roles en el token como parte de los claims y configura
-     * una duración de 1 hora.
+     * la duración indicada en jwt.max.expiration.seconds.
      *
      * @param username el nombre del usuario para el cual se genera el token.
      * @param roles la lista de roles del usuario (por ejemplo, ["USER", "ADMIN"]).
      * @return el token JWT generado.
      */
     public String generateToken(String username, List<String> roles, Long id) {
+        KeyPair keyPair = jwtKeySet.getActiveKeyPair();
         return Jwts.builder()
+                .header().keyId(jwtKeySet.getActiveKeyId()).and() // kid para localizar la clave al verificar
+                .id(UUID.randomUUID().toString()) // jti, permite revocar el token antes de que expire
                 .subject(username)
                 .claim("roles", roles)
                 .claim("id", id)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + JWT_EXPIRATION))
-                .signWith(jwtKeyPair.getPrivate(), Jwts.SIG.RS256) // Firma explícita con RS256
+                .expiration(new Date(System.currentTimeMillis() + jwtExpirationSeconds * 1000))
+                .signWith(keyPair.getPrivate(), JwtKeySet.algorithmFor(keyPair.getPublic())) // RS256, ES256/384/512 o EdDSA según la clave
                 .compact();
     }
 
     /**
      * Extrae todos los claims (payload) del token JWT.
      *
-     * Utiliza el parser de JJWT configurado con la clave pública del par de claves.
+     * Utiliza el parser de JJWT con la clave pública indicada por el kid de la cabecera.
      * Este método valida la integridad y autenticidad del token antes de extraer los claims.
+     * Los claims verificados se guardan en caché hasta la expiración del token, por lo que
+     * las siguientes llamadas con el mismo token no vuelven a comprobar la firma.
      *
      * @param token el token JWT.
      * @return los claims contenidos en el token.
      */
     public Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(jwtKeyPair.getPublic()) // Configura la clave para verificar la firma
+        String key = digest(token);
+        CachedClaims cached = verifiedClaimsCache.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                cacheHits.incrementAndGet();
+                return cached.claims();
+            }
+            verifiedClaimsCache.remove(key, cached);
+        }
+        cacheMisses.incrementAndGet();
+
+        Claims claims = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() { // Selecciona la clave de verificación por kid
+                    @Override
+                    protected Key locate(ProtectedHeader header) {
+                        return jwtKeySet.getPublicKey(header.getKeyId());
+                    }
+                })
                 .build()
                 .parseSignedClaims(token) // Verifica el token y lo parsea
                 .getPayload(); // Devuelve el cuerpo del JWT (claims)
+
+        if (claims.getExpiration() != null) {
+            cacheClaims(key, new CachedClaims(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
     }
 
     /**
@@ -113,17 +184,86 @@ public class JwtUtil {
      * @return true si el token es válido, false en caso contrario.
      */
     public boolean validateToken(String token, String username) {
-        // Parseamos el token una sola vez aquí
-        Claims claims = Jwts.parser()
-                .verifyWith(jwtKeyPair.getPublic())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        // Los claims salen de la caché si el token ya se verificó antes
+        Claims claims = extractAllClaims(token);
 
         // Verificamos usuario y expiración usando el objeto claims ya extraído
         return username.equals(claims.getSubject()) && !isTokenExpired(claims);
     }
 
+    /**
+     * Número de veces que se han servido claims desde la caché.
+     *
+     * @return aciertos acumulados de la caché.
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Número de veces que ha sido necesario verificar la firma del token.
+     *
+     * @return fallos acumulados de la caché.
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * Número de tokens verificados que hay actualmente en la caché.
+     *
+     * @return tamaño actual de la caché.
+     */
+    public int getCacheSize() {
+        return verifiedClaimsCache.size();
+    }
+
+    /**
+     * Guarda una entrada en la caché respetando el tamaño máximo configurado.
+     * Si la caché está llena se eliminan primero las entradas caducadas y, si aun así
+     * no hay sitio, la fracción de entradas más próximas a caducar. El resto de tokens
+     * en uso conservan sus claims y no vuelven a pagar la verificación de la firma.
+     */
+    private void cacheClaims(String key, CachedClaims entry) {
+        if (verifiedClaimsCache.size() >= cacheMaxEntries) {
+            synchronized (verifiedClaimsCache) {
+                // Otro hilo puede haber hecho sitio mientras este esperaba
+                if (verifiedClaimsCache.size() >= cacheMaxEntries) {
+                    trimCache();
+                }
+            }
+        }
+        verifiedClaimsCache.put(key, entry);
+    }
+
+    private void trimCache() {
+        long now = System.currentTimeMillis();
+        verifiedClaimsCache.values().removeIf(cached -> cached.expiresAt() <= now);
+        int excess = verifiedClaimsCache.size() - cacheMaxEntries + Math.max(1, cacheMaxEntries / CACHE_TRIM_DIVISOR);
+        if (excess <= 0) {
+            return;
+        }
+        verifiedClaimsCache.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.comparingLong(CachedClaims::expiresAt)))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(verifiedClaimsCache::remove);
+    }
+
+    /**
+     * Calcula el resumen SHA-256 del token, que se usa como clave de la caché
+     * para no guardar el token completo en memoria.
+     */
+    private String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
     /**
      * Verifica si un token JWT ha expirado.
      *
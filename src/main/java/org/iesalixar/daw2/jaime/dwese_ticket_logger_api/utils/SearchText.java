@@ -0,0 +1,84 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades de texto para los índices de búsqueda en memoria.
+ */
+public final class SearchText {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    private SearchText() {
+    }
+
+    /**
+     * Normaliza un texto para compararlo sin distinguir mayúsculas ni acentos:
+     * "Cádiz" y "CADIZ" dan "cadiz".
+     *
+     * @param text texto original.
+     * @return texto en minúsculas, sin diacríticos y con los separadores reducidos a un espacio.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String withoutMarks = DIACRITICS.matcher(decomposed).replaceAll("");
+        return SEPARATORS.matcher(withoutMarks.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Obtiene los trigramas de un texto ya normalizado. Cada palabra se rellena con dos
+     * espacios delante para que los prefijos cortos también generen trigramas.
+     *
+     * @param normalized texto normalizado.
+     * @param padEnd si se añade un espacio al final de cada palabra (se omite en consultas
+     *               incompletas, donde la última palabra aún se está escribiendo).
+     * @return conjunto de trigramas, sin repetidos.
+     */
+    public static Set<String> trigrams(String normalized, boolean padEnd) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + (padEnd ? " " : "");
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(padded.substring(i, i + 3));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Distancia de edición (Levenshtein) entre dos textos.
+     *
+     * @param a primer texto.
+     * @param b segundo texto.
+     * @return número mínimo de inserciones, borrados o sustituciones para pasar de uno a otro.
+     */
+    public static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
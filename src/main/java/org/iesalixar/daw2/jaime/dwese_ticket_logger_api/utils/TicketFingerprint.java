@@ -0,0 +1,62 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.utils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Huella canónica del contenido de un ticket: SHA-256 de la fecha (con precisión de
+ * segundos, la de la columna), el descuento y los pares (producto, precio) ordenados.
+ *
+ * El producto se identifica por su nombre normalizado y no por su id, porque al reenviar
+ * un ticket ya cargado sus productos nuevos se insertan con ids distintos.
+ */
+public final class TicketFingerprint {
+
+    private TicketFingerprint() {
+    }
+
+    /**
+     * Línea de producto de un ticket.
+     *
+     * @param name nombre del producto.
+     * @param price precio del producto.
+     */
+    public record Line(String name, BigDecimal price) {
+    }
+
+    /**
+     * Calcula la huella de un ticket.
+     *
+     * @param date fecha del ticket.
+     * @param discount descuento del ticket.
+     * @param lines productos del ticket, en cualquier orden.
+     * @return la huella en hexadecimal (64 caracteres).
+     */
+    public static String compute(Date date, BigDecimal discount, Collection<Line> lines) {
+        StringBuilder canonical = new StringBuilder()
+                .append(Math.floorDiv(date.getTime(), 1000L)).append('|')
+                .append(plain(discount)).append('|');
+        List<String> pairs = lines.stream()
+                .map(line -> SearchText.normalize(line.name()) + "=" + plain(line.price()))
+                .sorted(Comparator.naturalOrder())
+                .toList();
+        canonical.append(String.join(";", pairs));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "0" : value.stripTrailingZeros().toPlainString();
+    }
+}
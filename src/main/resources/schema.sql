@@ -76,4 +76,62 @@ CREATE TABLE IF NOT EXISTS user_roles (
  PRIMARY KEY (user_id, role_id),
  FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
  FOREIGN KEY (role_id) REFERENCES roles(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- Crear la tabla 'refresh_tokens'. Solo se guarda el resumen SHA-256 de cada token
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+ id BIGINT PRIMARY KEY AUTO_INCREMENT,
+ token_hash CHAR(64) NOT NULL UNIQUE,
+ family_id VARCHAR(36) NOT NULL,
+ user_id BIGINT NOT NULL,
+ expires_at DATETIME NOT NULL,
+ revoked BOOLEAN NOT NULL DEFAULT FALSE,
+ created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+ INDEX idx_refresh_tokens_family (family_id),
+ FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Crear la tabla 'revoked_tokens' con los identificadores (jti) de los tokens revocados
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+ jti VARCHAR(36) PRIMARY KEY,
+ expires_at DATETIME NOT NULL,
+ INDEX idx_revoked_tokens_expires_at (expires_at)
+);
+
+-- Totales persistidos de los tickets, mantenidos de forma incremental
+ALTER TABLE tickets
+ADD COLUMN IF NOT EXISTS subtotal DECIMAL(12, 2) NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS total DECIMAL(12, 2) NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS idx_tickets_total ON tickets (total);
+
+-- Índice para la paginación por clave de los tickets sobre (date, id)
+CREATE INDEX IF NOT EXISTS idx_tickets_date_id ON tickets (date, id);
+
+-- Versión de los tickets para el bloqueo optimista de las ediciones concurrentes
+ALTER TABLE tickets
+ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Gasto agregado por día, semana y mes, mantenido en la misma transacción que los tickets
+CREATE TABLE IF NOT EXISTS spending_rollups (
+ granularity VARCHAR(5) NOT NULL,
+ period_start DATE NOT NULL,
+ ticket_count BIGINT NOT NULL DEFAULT 0,
+ gross DECIMAL(14, 2) NOT NULL DEFAULT 0,
+ discount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+ net DECIMAL(14, 2) NOT NULL DEFAULT 0,
+ PRIMARY KEY (granularity, period_start)
+);
+
+-- Huella del contenido de los tickets para detectar duplicados al cargarlos
+ALTER TABLE tickets
+ADD COLUMN IF NOT EXISTS fingerprint CHAR(64) NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_tickets_fingerprint ON tickets (fingerprint);
+
+-- Nombre normalizado de los productos creados desde un ticket. La clave única impide que dos
+-- altas simultáneas añadan al mismo ticket dos productos nuevos con el mismo nombre
+ALTER TABLE product_ticket
+ADD COLUMN IF NOT EXISTS name_key VARCHAR(255) NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_product_ticket_name ON product_ticket (ticket_id, name_key);
+
+-- Índice sobre el nombre de las provincias para la ordenación y la búsqueda del listado
+CREATE INDEX IF NOT EXISTS idx_provincias_name ON provincias (name);
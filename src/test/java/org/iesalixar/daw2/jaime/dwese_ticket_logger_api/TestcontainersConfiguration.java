@@ -0,0 +1,24 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.mariadb.MariaDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Base de datos MariaDB desechable para las pruebas que confirman datos de verdad.
+ *
+ * El contenedor se crea vacío con el contexto de la prueba, schema.sql y data.sql se aplican
+ * al arrancar y se descarta al terminar, por lo que las pruebas no tocan la base de datos
+ * configurada ni necesitan borrar lo que crean.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class TestcontainersConfiguration {
+
+    @Bean
+    @ServiceConnection
+    MariaDBContainer mariaDbContainer() {
+        return new MariaDBContainer(DockerImageName.parse("mariadb:latest"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que los planes de carga de los tickets no lanzan una consulta por ticket al
+ * recorrer sus productos: el número de sentencias no depende del número de tickets.
+ *
+ * Se ejecuta contra la base de datos configurada (MariaDB) y cada test se deshace al terminar.
+ * Los datos se insertan con JDBC para no depender de los listeners de las entidades.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TicketRepositoryQueryCountTest {
+
+    // Fecha lejana para que los listados solo vean los tickets de la prueba
+    private static final Date FROM = Timestamp.valueOf(LocalDateTime.of(2099, 1, 1, 0, 0));
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listingTicketsWithTotalsRunsAConstantNumberOfStatements() {
+        insertTickets(5, 3);
+        long fewTickets = countListStatements();
+
+        insertTickets(45, 3);
+        long manyTickets = countListStatements();
+
+        assertEquals(fewTickets, manyTickets, "El número de sentencias crece con el número de tickets");
+        // Una consulta para la página y otra (IN por lote) para los productos
+        assertTrue(manyTickets <= 2, "Sentencias ejecutadas: " + manyTickets);
+    }
+
+    @Test
+    void listingAllTicketsWithProductsUsesASingleStatement() {
+        insertTickets(20, 3);
+        entityManager.clear();
+        statistics.clear();
+
+        List<Ticket> tickets = ticketRepository.findAllWithProducts();
+        sumPrices(tickets);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void ticketDetailLoadsProductsInTheSameStatement() {
+        Long ticketId = insertTickets(1, 5).get(0);
+        entityManager.clear();
+        statistics.clear();
+
+        Ticket ticket = ticketRepository.findWithProductsById(ticketId).orElseThrow();
+        sumPrices(List.of(ticket));
+
+        assertEquals(5, ticket.getProducts().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private long countListStatements() {
+        entityManager.clear();
+        statistics.clear();
+        List<Ticket> tickets = ticketRepository.findFirstPage(FROM, null, null, null, null, Limit.of(100));
+        sumPrices(tickets);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private BigDecimal sumPrices(List<Ticket> tickets) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Ticket ticket : tickets) {
+            for (Product product : ticket.getProducts()) {
+                total = total.add(product.getPrice());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Inserta tickets con productos propios y devuelve sus ids.
+     */
+    private List<Long> insertTickets(int tickets, int productsPerTicket) {
+        List<Long> ids = new ArrayList<>();
+        for (int t = 0; t < tickets; t++) {
+            jdbcTemplate.update("INSERT INTO tickets (date, discount) VALUES (?, 0)",
+                    new Timestamp(FROM.getTime() + (ids.size() + 1) * 60_000L));
+            Long ticketId = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+            for (int p = 0; p < productsPerTicket; p++) {
+                jdbcTemplate.update("INSERT INTO products (name, price) VALUES (?, ?)",
+                        "Producto de prueba " + ticketId + "-" + p, new BigDecimal("1.25"));
+                Long productId = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+                jdbcTemplate.update("INSERT INTO product_ticket (product_id, ticket_id) VALUES (?, ?)", productId, ticketId);
+            }
+            ids.add(ticketId);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,155 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.TestcontainersConfiguration;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketBatchItemDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.dtos.TicketBatchResultDTO;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Product;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.ProductChangeListener;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.Ticket;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.mappers.TicketMapper;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara el rendimiento de la carga masiva de tickets (TicketBatchService, detrás de
+ * /api/tickets/batch) con el camino de un ticket cada vez (TicketService.createTicket, detrás
+ * del formulario), cargando los mismos tickets por ambos caminos y registrando los dos ritmos.
+ *
+ * Es una medida, no una prueba funcional, por lo que solo se ejecuta a petición:
+ * mvn test -Dtest=TicketBatchThroughputTest -Dbenchmark=true
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Import({TestcontainersConfiguration.class, TicketBatchService.class, TicketService.class, TicketMapper.class,
+        SpendingRollupService.class, TicketFingerprintService.class, ProductSearchIndex.class,
+        ProductCatalogService.class, ProductChangeListener.class})
+class TicketBatchThroughputTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketBatchThroughputTest.class);
+
+    private static final int TICKETS = 2000;
+    private static final int LINES_PER_TICKET = 5;
+    private static final int CATALOG_SIZE = 50;
+    // Tamaño de cada petición a la carga masiva
+    private static final int BATCH_SIZE = 500;
+
+    @MockitoBean
+    private LowestPriceService lowestPriceService;
+
+    @Autowired
+    private TicketBatchService ticketBatchService;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchLoadIsFasterThanOneTicketAtATime() {
+        List<Long> catalog = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            jdbcTemplate.update("INSERT INTO products (name, price) VALUES (?, ?)", "Producto de carga masiva " + i,
+                    new BigDecimal("1.00").add(BigDecimal.valueOf(i)));
+            catalog.add(jdbcTemplate.queryForObject("SELECT MAX(id) FROM products", Long.class));
+        }
+
+        // Los mismos tickets por ambos caminos, con fechas distintas para que no se detecten como duplicados
+        long singleNanos = loadOneAtATime(catalog, LocalDateTime.of(2098, 1, 1, 0, 0));
+        long batchNanos = loadInBatches(catalog, LocalDateTime.of(2097, 1, 1, 0, 0));
+
+        double singleRate = TICKETS * 1e9 / singleNanos;
+        double batchRate = TICKETS * 1e9 / batchNanos;
+        logger.info("Carga de {} tickets con {} productos: {} tickets/s uno a uno, {} tickets/s en lotes de {} ({}x)",
+                TICKETS, LINES_PER_TICKET, Math.round(singleRate), Math.round(batchRate), BATCH_SIZE,
+                String.format("%.1f", batchRate / singleRate));
+
+        assertEquals(2 * TICKETS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tickets WHERE date >= '2097-01-01'", Integer.class));
+        assertEquals(2 * TICKETS * LINES_PER_TICKET, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_ticket pt JOIN tickets t ON t.id = pt.ticket_id " +
+                "WHERE t.date >= '2097-01-01'", Integer.class));
+    }
+
+    private long loadOneAtATime(List<Long> catalog, LocalDateTime firstDate) {
+        // Los productos se leen antes de medir, como los que el formulario ya trae resueltos
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(catalog).forEach(product -> products.put(product.getId(), product));
+        long start = System.nanoTime();
+        for (int i = 0; i < TICKETS; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setDate(dateOf(firstDate, i));
+            ticket.setDiscount(BigDecimal.ZERO);
+            List<Product> lines = new ArrayList<>();
+            for (Long productId : linesOf(catalog, i)) {
+                lines.add(products.get(productId));
+            }
+            ticket.setProducts(lines);
+            ticketService.createTicket(ticket);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long loadInBatches(List<Long> catalog, LocalDateTime firstDate) {
+        long start = System.nanoTime();
+        for (int from = 0; from < TICKETS; from += BATCH_SIZE) {
+            List<TicketBatchItemDTO> items = new ArrayList<>();
+            for (int i = from; i < Math.min(TICKETS, from + BATCH_SIZE); i++) {
+                TicketBatchItemDTO item = new TicketBatchItemDTO();
+                item.setDate(dateOf(firstDate, i));
+                item.setDiscount(BigDecimal.ZERO);
+                List<TicketBatchItemDTO.ProductLine> lines = new ArrayList<>();
+                for (Long productId : linesOf(catalog, i)) {
+                    TicketBatchItemDTO.ProductLine line = new TicketBatchItemDTO.ProductLine();
+                    line.setProductId(productId);
+                    lines.add(line);
+                }
+                item.setProducts(lines);
+                items.add(item);
+            }
+            for (TicketBatchResultDTO result : ticketBatchService.insertTickets(items)) {
+                assertEquals("CREATED", result.getStatus(), result.getMessage());
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static Date dateOf(LocalDateTime firstDate, int index) {
+        return Date.from(firstDate.plusMinutes(index).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static List<Long> linesOf(List<Long> catalog, int index) {
+        List<Long> lines = new ArrayList<>();
+        for (int line = 0; line < LINES_PER_TICKET; line++) {
+            lines.add(catalog.get((index + line * 7) % catalog.size()));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,98 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.TestcontainersConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que la exportación deja de leer del servidor cuando el cliente se desconecta.
+ *
+ * Se cuentan las filas que el servidor envía (variable de estado Rows_sent) durante una
+ * exportación completa y durante una que falla al escribir tras los primeros kilobytes. Sin
+ * cancelar la consulta, el driver descartaría el resto del resultado y el servidor lo
+ * enviaría entero igualmente.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestcontainersConfiguration.class, TicketExportService.class})
+class TicketExportCancellationTest {
+
+    private static final int TICKETS = 200_000;
+    // Bytes escritos antes de simular la desconexión del cliente
+    private static final int BYTES_BEFORE_DISCONNECT = 64 * 1024;
+    private static final Date FROM = Timestamp.valueOf(LocalDateTime.of(2090, 1, 1, 0, 0));
+
+    @Autowired
+    private TicketExportService ticketExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tickets WHERE date >= ?", Integer.class, FROM) == 0) {
+            jdbcTemplate.update("INSERT INTO tickets (date, discount, subtotal, total) " +
+                    "SELECT ? + INTERVAL seq SECOND, 0, 1, 1 FROM seq_1_to_" + TICKETS, FROM);
+        }
+    }
+
+    @Test
+    void fullExportSendsEveryRow() throws IOException {
+        long before = rowsSent();
+        ticketExportService.export(TicketExportService.Format.CSV, FROM, null, OutputStream.nullOutputStream());
+        assertTrue(rowsSent() - before >= TICKETS, "Filas enviadas: " + (rowsSent() - before));
+    }
+
+    @Test
+    void clientDisconnectStopsTheQuery() {
+        long before = rowsSent();
+        assertThrows(IOException.class, () -> ticketExportService.export(TicketExportService.Format.CSV, FROM, null,
+                new DisconnectingOutputStream()));
+        long sent = rowsSent() - before;
+        assertTrue(sent < TICKETS / 2, "El servidor ha enviado " + sent + " de " + TICKETS + " filas");
+    }
+
+    private long rowsSent() {
+        return jdbcTemplate.queryForObject(
+                "SELECT VARIABLE_VALUE FROM information_schema.GLOBAL_STATUS WHERE VARIABLE_NAME = 'ROWS_SENT'",
+                Long.class);
+    }
+
+    /**
+     * Flujo que falla como una conexión cerrada por el cliente tras unos kilobytes.
+     */
+    private static class DisconnectingOutputStream extends OutputStream {
+
+        private long written;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            written += len;
+            if (written > BYTES_BEFORE_DISCONNECT) {
+                throw new IOException("Conexión cerrada por el cliente");
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.iesalixar.daw2.jaime.dwese_ticket_logger_api.services;
+
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.TestcontainersConfiguration;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.entities.ProductChangeListener;
+import org.iesalixar.daw2.jaime.dwese_ticket_logger_api.mappers.TicketMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga concurrente sobre un mismo ticket: varios hilos añaden los mismos productos,
+ * crean a la vez un producto nuevo con el mismo nombre y editan el descuento. Al terminar no
+ * debe faltar ninguna actualización en las filas, los totales ni los agregados de gasto.
+ *
+ * También compara el rendimiento de las altas concurrentes con el de las mismas altas
+ * bloqueando antes el ticket (SELECT ... FOR UPDATE), que es la alternativa pesimista.
+ *
+ * Las operaciones se confirman de verdad (sin la transacción de la prueba), por lo que se
+ * ejecutan contra una base de datos MariaDB desechable en un contenedor.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestcontainersConfiguration.class, TicketProductService.class, TicketService.class, TicketMapper.class,
+        SpendingRollupService.class, TicketFingerprintService.class, ProductSearchIndex.class,
+        ProductCatalogService.class, ProductChangeListener.class})
+class TicketProductConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketProductConcurrencyTest.class);
+
+    private static final int THREADS = 8;
+    private static final int PRODUCTS = 40;
+    private static final String NEW_NAME = "Producto concurrente";
+    private static final BigDecimal NEW_PRICE = new BigDecimal("2.50");
+    private static final BigDecimal DISCOUNT = new BigDecimal("10.00");
+    // Fecha propia para que los agregados de gasto no se mezclen con los de data.sql
+    private static final Timestamp DATE = Timestamp.valueOf(LocalDateTime.of(2099, 6, 15, 12, 0));
+    // Altas por ronda en la comparación de rendimiento
+    private static final int THROUGHPUT_PRODUCTS = 400;
+    // Margen para el ruido de la medida: las altas sin bloqueo previo no deben ser más lentas
+    private static final double MIN_THROUGHPUT_RATIO = 0.8;
+
+    @MockitoBean
+    private LowestPriceService lowestPriceService;
+
+    @Autowired
+    private TicketProductService ticketProductService;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long ticketId;
+    private final List<Long> productIds = new ArrayList<>();
+    private BigDecimal productsTotal = BigDecimal.ZERO;
+
+    @BeforeEach
+    void setUp() {
+        ticketId = insertTicket(DATE);
+        for (int i = 0; i < PRODUCTS; i++) {
+            BigDecimal price = new BigDecimal("1.00").add(new BigDecimal("0.05").multiply(BigDecimal.valueOf(i)));
+            productIds.add(insertProduct("Producto de carga " + i, price));
+            productsTotal = productsTotal.add(price);
+        }
+    }
+
+    @Test
+    void concurrentEditsOfTheSameTicketLoseNoUpdates() throws Exception {
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger newProductsAdded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Object>> tasks = new ArrayList<>();
+
+        // Cada producto se añade dos veces desde tareas distintas: solo una debe contar
+        for (Long productId : productIds) {
+            for (int copy = 0; copy < 2; copy++) {
+                tasks.add(() -> {
+                    start.await();
+                    if (ticketProductService.addProduct(ticketId, productId) == TicketProductService.Outcome.DONE) {
+                        added.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+        }
+        // Varios usuarios crean a la vez el mismo producto nuevo: solo uno debe añadirse
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                start.await();
+                if (ticketProductService.addNewProduct(ticketId, NEW_NAME, NEW_PRICE) == TicketProductService.Outcome.DONE) {
+                    newProductsAdded.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        // La edición del descuento no entra en conflicto con las altas de productos
+        tasks.add(() -> {
+            start.await();
+            ticketService.updateTicketFields(ticketId, null, null, DISCOUNT);
+            return null;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (Callable<Object> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        start.countDown();
+        for (Future<Object> future : futures) {
+            // Propaga cualquier error (conflicto, bloqueo mutuo, tiempo de espera) de las tareas
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(PRODUCTS, added.get());
+        assertEquals(1, newProductsAdded.get());
+        assertEquals(PRODUCTS + 1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_ticket WHERE ticket_id = ?", Integer.class, ticketId));
+
+        BigDecimal expectedSubtotal = productsTotal.add(NEW_PRICE);
+        BigDecimal expectedTotal = expectedSubtotal
+                .subtract(expectedSubtotal.multiply(DISCOUNT).divide(BigDecimal.valueOf(100)))
+                .setScale(2, RoundingMode.HALF_UP);
+        Map<String, Object> ticket = jdbcTemplate.queryForMap(
+                "SELECT subtotal, total, discount FROM tickets WHERE id = ?", ticketId);
+        assertEquals(0, expectedSubtotal.compareTo((BigDecimal) ticket.get("subtotal")), "subtotal " + ticket);
+        assertEquals(0, expectedTotal.compareTo((BigDecimal) ticket.get("total")), "total " + ticket);
+        assertEquals(0, DISCOUNT.compareTo((BigDecimal) ticket.get("discount")), "discount " + ticket);
+
+        // El ticket se insertó sin agregados, así que el agregado diario acumula exactamente sus variaciones
+        Map<String, Object> rollup = jdbcTemplate.queryForMap(
+                "SELECT gross, net FROM spending_rollups WHERE granularity = 'DAY' AND period_start = '2099-06-15'");
+        assertEquals(0, expectedSubtotal.compareTo((BigDecimal) rollup.get("gross")), "gross " + rollup);
+        assertEquals(0, expectedTotal.compareTo((BigDecimal) rollup.get("net")), "net " + rollup);
+    }
+
+    @Test
+    void concurrentAddsAreNotSlowerThanLockingTheTicket() throws Exception {
+        List<Long> products = new ArrayList<>();
+        for (int i = 0; i < THROUGHPUT_PRODUCTS; i++) {
+            products.add(insertProduct("Producto de rendimiento " + i, new BigDecimal("1.00")));
+        }
+        Timestamp date = Timestamp.valueOf(LocalDateTime.of(2099, 7, 1, 12, 0));
+        TransactionTemplate lockingTemplate = new TransactionTemplate(transactionManager);
+
+        // Calentamiento de ambos caminos sobre tickets que no se miden
+        Long warmUp = insertTicket(date);
+        addConcurrently(products.subList(0, PRODUCTS), productId -> ticketProductService.addProduct(warmUp, productId));
+        Long warmUpLocked = insertTicket(date);
+        addConcurrently(products.subList(0, PRODUCTS), productId -> addLocked(lockingTemplate, warmUpLocked, productId));
+
+        Long optimisticTicket = insertTicket(date);
+        long optimisticNanos = addConcurrently(products,
+                productId -> ticketProductService.addProduct(optimisticTicket, productId));
+        Long lockedTicket = insertTicket(date);
+        long lockedNanos = addConcurrently(products, productId -> addLocked(lockingTemplate, lockedTicket, productId));
+
+        double optimisticRate = THROUGHPUT_PRODUCTS * 1e9 / optimisticNanos;
+        double lockedRate = THROUGHPUT_PRODUCTS * 1e9 / lockedNanos;
+        logger.info("Altas concurrentes en un ticket: {} op/s sin bloqueo previo, {} op/s con SELECT ... FOR UPDATE",
+                Math.round(optimisticRate), Math.round(lockedRate));
+
+        for (Long ticket : List.of(optimisticTicket, lockedTicket)) {
+            assertEquals(THROUGHPUT_PRODUCTS, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM product_ticket WHERE ticket_id = ?", Integer.class, ticket));
+            assertEquals(0, BigDecimal.valueOf(THROUGHPUT_PRODUCTS).compareTo(jdbcTemplate.queryForObject(
+                    "SELECT subtotal FROM tickets WHERE id = ?", BigDecimal.class, ticket)));
+        }
+        assertTrue(optimisticRate >= lockedRate * MIN_THROUGHPUT_RATIO,
+                "Sin bloqueo previo: " + optimisticRate + " op/s; con bloqueo: " + lockedRate + " op/s");
+    }
+
+    /**
+     * Alternativa pesimista: bloquea la fila del ticket antes de añadir el producto, en la
+     * misma transacción.
+     */
+    private void addLocked(TransactionTemplate lockingTemplate, Long ticket, Long productId) {
+        lockingTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM tickets WHERE id = ? FOR UPDATE", Long.class, ticket);
+            ticketProductService.addProduct(ticket, productId);
+        });
+    }
+
+    /**
+     * Añade los productos repartidos entre varios hilos y devuelve el tiempo transcurrido.
+     */
+    private long addConcurrently(List<Long> products, Consumer<Long> add) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (Long productId : products) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                add.accept(productId);
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<Object> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private Long insertTicket(Timestamp date) {
+        jdbcTemplate.update("INSERT INTO tickets (date, discount) VALUES (?, 0)", date);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tickets WHERE date = ?", Long.class, date);
+    }
+
+    private Long insertProduct(String name, BigDecimal price) {
+        jdbcTemplate.update("INSERT INTO products (name, price) VALUES (?, ?)", name, price);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM products WHERE name = ?", Long.class, name);
+    }
+}